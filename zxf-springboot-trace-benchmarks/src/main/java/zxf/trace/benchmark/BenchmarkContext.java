@@ -0,0 +1,82 @@
+package zxf.trace.benchmark;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import zxf.trace.mdc.MDCConfiguration;
+import zxf.trace.sensitive.SensitiveConfiguration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Wires the trace components under benchmark the way the applications do, from hand-built
+ * configuration instead of bound properties, and without starting a web server.
+ */
+final class BenchmarkContext {
+    static final String[] SENSITIVE_HEADERS = {"Token", "Authorization", "Cookie", "Set-Cookie"};
+
+    private BenchmarkContext() {
+    }
+
+    static AnnotationConfigApplicationContext start(String[] jsonNames, Class<?>... componentClasses) {
+        SensitiveConfiguration sensitiveConfiguration = new SensitiveConfiguration();
+        sensitiveConfiguration.setJsonNames(jsonNames);
+        sensitiveConfiguration.setHeaders(SENSITIVE_HEADERS);
+
+        MDCConfiguration mdcConfiguration = new MDCConfiguration();
+        mdcConfiguration.setEnable(true);
+        mdcConfiguration.setKey("ReqId");
+        mdcConfiguration.setHeader("X-Request-Id");
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("sensitiveConfiguration", sensitiveConfiguration);
+        context.getBeanFactory().registerSingleton("mdcConfiguration", mdcConfiguration);
+        context.register(componentClasses);
+        context.refresh();
+        return context;
+    }
+
+    /**
+     * A JSON document of roughly {@code size} bytes: an array of objects, each carrying every one of
+     * the {@code keyCount} sensitive keys plus a few keys which are left alone.
+     */
+    static String jsonBody(int size, int keyCount) {
+        StringBuilder json = new StringBuilder(size + 256).append("{\"items\":[");
+        for (int item = 0; json.length() < size; item++) {
+            if (item > 0) {
+                json.append(',');
+            }
+            json.append("{\"seq\":").append(item).append(",\"name\":\"item-").append(item).append("\",\"active\":true");
+            for (int key = 0; key < keyCount; key++) {
+                json.append(",\"").append(sensitiveKey(key)).append("\":\"secret-").append(item).append('-').append(key).append('"');
+            }
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * {@link #jsonBody} of {@code chunkCount * chunkSize} bytes split into chunks as they would arrive off the wire.
+     */
+    static byte[][] jsonChunks(int chunkCount, int chunkSize, int keyCount) {
+        byte[] json = jsonBody(chunkCount * chunkSize, keyCount).getBytes(StandardCharsets.UTF_8);
+        byte[][] chunks = new byte[chunkCount][];
+        for (int i = 0; i < chunkCount; i++) {
+            int from = i * chunkSize;
+            int to = i == chunkCount - 1 ? json.length : from + chunkSize;
+            chunks[i] = Arrays.copyOfRange(json, from, to);
+        }
+        return chunks;
+    }
+
+    static String[] sensitiveKeys(int keyCount) {
+        String[] keys = new String[keyCount];
+        for (int key = 0; key < keyCount; key++) {
+            keys[key] = sensitiveKey(key);
+        }
+        return keys;
+    }
+
+    private static String sensitiveKey(int key) {
+        return "secret" + key;
+    }
+}
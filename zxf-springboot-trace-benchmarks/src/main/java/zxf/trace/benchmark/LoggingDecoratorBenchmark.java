@@ -0,0 +1,101 @@
+package zxf.trace.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import reactor.core.publisher.Flux;
+import zxf.trace.metrics.TraceMeter;
+import zxf.trace.reactive.inbound.LoggingRequestDecorator;
+import zxf.trace.reactive.inbound.LoggingResponseDecorator;
+import zxf.trace.record.BannerTraceRecordRenderer;
+import zxf.trace.record.TraceRecord;
+import zxf.trace.sensitive.SensitiveDataHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The WebFlux inbound decorators end to end: the body flows through the capture, then the request
+ * or response is described as a trace record and rendered with masked headers and body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingDecoratorBenchmark {
+    private static final int MAX_BODY_BYTES = 65536;
+
+    @Param({"1", "16"})
+    private int chunkCount;
+    @Param({"1024", "8192"})
+    private int chunkSize;
+
+    private AnnotationConfigApplicationContext context;
+    private BannerTraceRecordRenderer bannerRenderer;
+    private byte[][] chunks;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(BenchmarkContext.sensitiveKeys(8), SensitiveDataHelper.class, BannerTraceRecordRenderer.class);
+        bannerRenderer = context.getBean(BannerTraceRecordRenderer.class);
+        chunks = BenchmarkContext.jsonChunks(chunkCount, chunkSize, 8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String request() {
+        MockServerHttpRequest request = MockServerHttpRequest.post("/api/outbound-test")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Flux.fromIterable(buffers()));
+        LoggingRequestDecorator decorator = new LoggingRequestDecorator(request, MAX_BODY_BYTES);
+        try {
+            decorator.getBody().blockLast();
+            return bannerRenderer.render(decorator.describe(TraceRecord.builder().direction(TraceRecord.Direction.INBOUND), TraceMeter.NOOP).build());
+        } finally {
+            decorator.release();
+        }
+    }
+
+    @Benchmark
+    public String response() {
+        MockServerHttpResponse response = new MockServerHttpResponse();
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        LoggingResponseDecorator decorator = new LoggingResponseDecorator(response, MAX_BODY_BYTES);
+        try {
+            decorator.writeWith(Flux.fromIterable(buffers())).block();
+            return bannerRenderer.render(decorator.describe(TraceRecord.builder().direction(TraceRecord.Direction.INBOUND), TraceMeter.NOOP).build());
+        } finally {
+            decorator.release();
+        }
+    }
+
+    private List<DataBuffer> buffers() {
+        List<DataBuffer> buffers = new ArrayList<>(chunks.length);
+        for (byte[] chunk : chunks) {
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(chunk));
+        }
+        return buffers;
+    }
+}
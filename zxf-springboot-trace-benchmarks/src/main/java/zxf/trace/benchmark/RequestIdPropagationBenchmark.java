@@ -0,0 +1,105 @@
+package zxf.trace.benchmark;
+
+import io.micrometer.context.ContextSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import zxf.trace.reactive.RequestIdContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of carrying the request id through a reactive pipeline: nothing at all, the explicit
+ * {@link RequestIdContext} used by the WebFlux module (context entry plus an MDC scope around the
+ * one trace log statement), and Reactor's automatic context propagation, which restores thread
+ * locals around every operator instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestIdPropagationBenchmark {
+    private static final int OPERATORS = 8;
+
+    private AnnotationConfigApplicationContext context;
+    private RequestIdContext requestIdContext;
+    private MockServerHttpRequest request;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(new String[0], RequestIdContext.class);
+        requestIdContext = context.getBean(RequestIdContext.class);
+        request = MockServerHttpRequest.get("/api/ok-test").header("X-Request-Id", "6f1c2a8e-93d4-4b7a-9f0e-2c5d7b1a4e33").build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String noPropagation() {
+        return pipeline().flatMap(value -> Mono.deferContextual(contextView -> Mono.just(value + MDC.get("ReqId")))).block();
+    }
+
+    @Benchmark
+    public String requestIdContext() {
+        Context requestContext = requestIdContext.contextOf(request);
+        return pipeline().flatMap(value -> Mono.deferContextual(contextView -> {
+            try (ContextSnapshot.Scope scope = requestIdContext.restoreMdc(contextView)) {
+                return Mono.just(value + MDC.get("ReqId"));
+            }
+        })).contextWrite(requestContext).block();
+    }
+
+    @Benchmark
+    public String automaticPropagation(AutomaticPropagation automaticPropagation) {
+        Context requestContext = requestIdContext.contextOf(request);
+        return pipeline().flatMap(value -> Mono.deferContextual(contextView -> Mono.just(value + MDC.get("ReqId"))))
+                .contextWrite(requestContext).block();
+    }
+
+    /**
+     * The same operator chain for every variant, ending with the single point where a trace record is logged.
+     */
+    private static Mono<String> pipeline() {
+        Mono<String> pipeline = Mono.just("");
+        for (int i = 0; i < OPERATORS; i++) {
+            pipeline = pipeline.map(value -> value);
+        }
+        return pipeline;
+    }
+
+    /**
+     * Installs the global Reactor hook, only for the benchmark asking for it: JMH forks a JVM per benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class AutomaticPropagation {
+        @Setup(Level.Trial)
+        public void enable() {
+            Hooks.enableAutomaticContextPropagation();
+        }
+
+        @TearDown(Level.Trial)
+        public void disable() {
+            Hooks.disableAutomaticContextPropagation();
+        }
+    }
+}
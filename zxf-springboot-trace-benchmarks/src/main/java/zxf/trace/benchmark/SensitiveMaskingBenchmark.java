@@ -0,0 +1,64 @@
+package zxf.trace.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import zxf.trace.sensitive.SensitiveDataHelper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SensitiveDataHelper#maskSensitiveDataFromJson} on the byte path used by the renderers and
+ * on the String path, across body sizes and numbers of configured sensitive keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensitiveMaskingBenchmark {
+    @Param({"256", "4096", "65536"})
+    private int bodySize;
+    @Param({"1", "8", "32"})
+    private int keyCount;
+
+    private AnnotationConfigApplicationContext context;
+    private SensitiveDataHelper sensitiveDataHelper;
+    private String json;
+    private byte[] jsonBytes;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(BenchmarkContext.sensitiveKeys(keyCount), SensitiveDataHelper.class);
+        sensitiveDataHelper = context.getBean(SensitiveDataHelper.class);
+        json = BenchmarkContext.jsonBody(bodySize, keyCount);
+        jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] maskBytes() {
+        return sensitiveDataHelper.maskSensitiveDataFromJson(jsonBytes);
+    }
+
+    @Benchmark
+    public String maskString() {
+        return sensitiveDataHelper.maskSensitiveDataFromJson(json);
+    }
+}
@@ -0,0 +1,81 @@
+package zxf.trace.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.StreamUtils;
+import zxf.trace.http.TeeClientHttpResponseWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound response capture while the caller's converter reads the body. {@code bufferAll} is the
+ * removed BufferingClientHttpResponseWrapper approach, which copied the whole body up front.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TeeClientHttpResponseBenchmark {
+    private static final int MAX_BODY_BYTES = 65536;
+
+    @Param({"1024", "65536", "1048576"})
+    private int bodySize;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        body = new byte[bodySize];
+        Arrays.fill(body, (byte) 'x');
+    }
+
+    @Benchmark
+    public long plain() throws IOException {
+        try (ClientHttpResponse response = response()) {
+            return response.getBody().transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public long tee(Blackhole blackhole) throws IOException {
+        try (ClientHttpResponse response = new TeeClientHttpResponseWrapper(response(), MAX_BODY_BYTES, blackhole::consume)) {
+            return response.getBody().transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public long bufferAll(Blackhole blackhole) throws IOException {
+        try (ClientHttpResponse response = response()) {
+            byte[] buffered = StreamUtils.copyToByteArray(response.getBody());
+            blackhole.consume(buffered);
+            InputStream replay = new ByteArrayInputStream(buffered);
+            return replay.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private MockClientHttpResponse response() {
+        MockClientHttpResponse response = new MockClientHttpResponse(body, HttpStatus.OK);
+        response.getHeaders().setContentLength(body.length);
+        return response;
+    }
+}
@@ -0,0 +1,91 @@
+package zxf.trace.benchmark.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline stand-in for the downstream services, {@code localhost:8089/pa/a/json} and the
+ * jsonplaceholder API: every path answers {@code 201} with a JSON document echoing the request
+ * body, optionally after a fixed delay.
+ * <p>
+ * Runs standalone ({@code java -cp benchmarks.jar zxf.trace.benchmark.load.DownstreamStub [port] [delayMillis]})
+ * or inside {@link LoadHarness}.
+ */
+public class DownstreamStub implements AutoCloseable {
+    private static final byte[] EMPTY_OBJECT = "{}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RESPONSE_PREFIX = "{\"status\":\"Success\",\"email\":\"someone@example.com\",\"echo\":".getBytes(StandardCharsets.UTF_8);
+
+    static {
+        // The JDK server closes keep-alive connections beyond 200 idle ones, which the app's pool then
+        // sees as "failed to respond" under high concurrency
+        if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections", "10000");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long delayMillis;
+
+    public DownstreamStub(int port, long delayMillis) throws IOException {
+        this.delayMillis = delayMillis;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "downstream-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 4096);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        long delayMillis = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        new DownstreamStub(port, delayMillis).start();
+        System.out.printf("Downstream stub listening on 127.0.0.1:%d, delay %d ms%n", port, delayMillis);
+    }
+
+    public DownstreamStub start() {
+        server.start();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] requestBody;
+            try (InputStream body = exchange.getRequestBody()) {
+                requestBody = body.readAllBytes();
+            }
+            if (delayMillis > 0) {
+                TimeUnit.MILLISECONDS.sleep(delayMillis);
+            }
+
+            byte[] echo = requestBody.length == 0 ? EMPTY_OBJECT : requestBody;
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(201, RESPONSE_PREFIX.length + echo.length + 1L);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(RESPONSE_PREFIX);
+                out.write(echo);
+                out.write('}');
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
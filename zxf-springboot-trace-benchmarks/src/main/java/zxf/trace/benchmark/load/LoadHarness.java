@@ -0,0 +1,360 @@
+package zxf.trace.benchmark.load;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end tracing overhead under HTTP load, fully offline.
+ * <p>
+ * Starts a {@link DownstreamStub}, then for every trace mode and thread model starts the packaged
+ * application in its own JVM with {@code app.outbound-url} pointing at the stub, and drives
+ * {@code POST /api/outbound-test} with a closed loop of {@code concurrency} clients for every body size.
+ * Throughput and p50/p99/p99.9 latencies are printed and written to {@code target/load/results-<app>.csv},
+ * the application's own output to {@code target/load/<app>-<mode>-<threads>.log}.
+ * <pre>
+ * mvn -B package -DskipTests
+ * java -cp zxf-springboot-trace-benchmarks/target/benchmarks.jar zxf.trace.benchmark.load.LoadHarness \
+ *      --app=webmvc --modes=off,on,sampled --concurrency=16,64 --body-sizes=256,16384 --duration=30
+ * </pre>
+ * Virtual against platform request threads, with a slow downstream so requests spend their time
+ * waiting on it (webmvc only, needs JDK 21+):
+ * <pre>
+ * java -cp zxf-springboot-trace-benchmarks/target/benchmarks.jar zxf.trace.benchmark.load.LoadHarness \
+ *      --app=webmvc --modes=on --threads=platform,virtual --concurrency=64,512 --stub-delay=50
+ * </pre>
+ */
+public class LoadHarness {
+    private static final Duration READY_TIMEOUT = Duration.ofSeconds(90);
+
+    private final Options options;
+    private final HttpClient client;
+
+    private LoadHarness(Options options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        new LoadHarness(options).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        Path outputDir = options.projectDir.resolve("zxf-springboot-trace-benchmarks/target/load");
+        Files.createDirectories(outputDir);
+        Path appJar = options.appJar();
+
+        List<Result> results = new ArrayList<>();
+        System.out.printf("%-8s %-8s %-8s %6s %8s %10s %9s %9s %9s %7s%n", "app", "mode", "threads", "conc", "body", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "errors");
+        try (DownstreamStub ignored = new DownstreamStub(options.stubPort, options.stubDelayMillis).start()) {
+            for (TraceMode mode : options.modes) {
+                for (ThreadModel threads : options.threads) {
+                    Path log = outputDir.resolve(options.app + "-" + mode.name().toLowerCase() + "-" + threads.name().toLowerCase() + ".log");
+                    try (AppProcess appProcess = AppProcess.start(appJar, arguments(mode, threads), options.jvmArgs, log)) {
+                        awaitReady(appProcess, log);
+                        for (int concurrency : options.concurrency) {
+                            for (int bodySize : options.bodySizes) {
+                                byte[] body = requestBody(bodySize);
+                                drive(concurrency, body, options.warmup);
+                                Result result = new Result(options.app, mode, threads, concurrency, bodySize, drive(concurrency, body, options.duration));
+                                results.add(result);
+                                System.out.println(result.format());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        writeCsv(outputDir.resolve("results-" + options.app + ".csv"), results);
+    }
+
+    private List<String> arguments(TraceMode mode, ThreadModel threads) {
+        List<String> arguments = new ArrayList<>();
+        arguments.add("--server.port=" + options.appPort);
+        arguments.add("--app.outbound-url=http://127.0.0.1:" + options.stubPort + "/posts");
+        arguments.addAll(mode.arguments(options));
+        arguments.addAll(threads.arguments());
+        return arguments;
+    }
+
+    private void awaitReady(AppProcess appProcess, Path log) throws InterruptedException {
+        URI uri = URI.create("http://127.0.0.1:" + options.appPort + "/api/ok-test?task=ready");
+        long deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!appProcess.isAlive()) {
+                throw new IllegalStateException("Application exited during startup, see " + log);
+            }
+            try {
+                if (client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException ex) {
+                // Not listening yet
+            }
+            TimeUnit.MILLISECONDS.sleep(250);
+        }
+        throw new IllegalStateException("Application did not become ready within " + READY_TIMEOUT);
+    }
+
+    private Samples drive(int concurrency, byte[] body, Duration duration) throws Exception {
+        URI uri = URI.create("http://127.0.0.1:" + options.appPort + "/api/outbound-test");
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + duration.toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Samples>> futures = new ArrayList<>(concurrency);
+            for (int worker = 0; worker < concurrency; worker++) {
+                String requestIdPrefix = "load-" + worker + "-";
+                futures.add(workers.submit(() -> {
+                    Samples samples = new Samples();
+                    for (long n = 0; System.nanoTime() < deadline; n++) {
+                        HttpRequest request = HttpRequest.newBuilder(uri)
+                                .timeout(Duration.ofSeconds(30))
+                                .header("Content-Type", "application/json")
+                                .header("X-Request-Id", requestIdPrefix + n)
+                                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                                .build();
+                        long requestStart = System.nanoTime();
+                        boolean ok;
+                        try {
+                            ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                        } catch (IOException ex) {
+                            ok = false;
+                        }
+                        samples.record(System.nanoTime() - requestStart, ok);
+                    }
+                    return samples;
+                }));
+            }
+
+            Samples all = new Samples();
+            for (Future<Samples> future : futures) {
+                all.merge(future.get());
+            }
+            all.elapsedNanos = System.nanoTime() - startNanos;
+            return all;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * A JSON body of exactly {@code size} bytes (or the smallest valid one), with a field the masker rewrites.
+     */
+    static byte[] requestBody(int size) {
+        String head = "{\"task\":200,\"email\":\"someone@example.com\",\"pad\":\"";
+        String tail = "\"}";
+        int padding = Math.max(0, size - head.length() - tail.length());
+        return (head + "x".repeat(padding) + tail).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeCsv(Path file, List<Result> results) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("app,mode,threads,concurrency,body_bytes,requests,errors,requests_per_second,p50_ms,p99_ms,p999_ms");
+            for (Result result : results) {
+                out.println(result.csv());
+            }
+        }
+        System.out.println("Results written to " + file);
+    }
+
+    enum TraceMode {
+        /**
+         * Trace loggers switched off: filters and interceptors stay installed, nothing is rendered or written.
+         */
+        OFF {
+            @Override
+            List<String> arguments(Options options) {
+                return List.of("--logging.level.zxf.trace=OFF");
+            }
+        },
+        ON {
+            @Override
+            List<String> arguments(Options options) {
+                return List.of();
+            }
+        },
+        /**
+         * Head sampling of successful exchanges at {@code --sample-ratio}, errors are always logged.
+         */
+        SAMPLED {
+            @Override
+            List<String> arguments(Options options) {
+                return List.of("--trace.sampling.enable=true", "--trace.sampling.ratio=" + options.sampleRatio);
+            }
+        };
+
+        abstract List<String> arguments(Options options);
+    }
+
+    enum ThreadModel {
+        /**
+         * Tomcat's request thread pool, as configured by the application.
+         */
+        PLATFORM {
+            @Override
+            List<String> arguments() {
+                return List.of();
+            }
+        },
+        /**
+         * A virtual thread per request, through the virtual-threads profile of webmvc with its larger
+         * connection pool.
+         */
+        VIRTUAL {
+            @Override
+            List<String> arguments() {
+                return List.of("--spring.profiles.active=virtual-threads");
+            }
+        };
+
+        abstract List<String> arguments();
+    }
+
+    private static final class Samples {
+        private long[] latencies = new long[4096];
+        private int count;
+        private long errors;
+        private long elapsedNanos;
+
+        void record(long latencyNanos, boolean ok) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        void merge(Samples other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, count + other.count);
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            errors += other.errors;
+        }
+
+        double percentileMillis(double percentile) {
+            if (count == 0) {
+                return Double.NaN;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+            return sorted[Math.max(0, Math.min(index, count - 1))] / 1_000_000.0;
+        }
+    }
+
+    private record Result(String app, TraceMode mode, ThreadModel threads, int concurrency, int bodySize, long requests, long errors,
+                          double throughput, double p50, double p99, double p999) {
+        Result(String app, TraceMode mode, ThreadModel threads, int concurrency, int bodySize, Samples samples) {
+            this(app, mode, threads, concurrency, bodySize, samples.count, samples.errors,
+                    samples.count / (samples.elapsedNanos / 1e9),
+                    samples.percentileMillis(50), samples.percentileMillis(99), samples.percentileMillis(99.9));
+        }
+
+        String format() {
+            return String.format("%-8s %-8s %-8s %6d %8d %10.1f %9.2f %9.2f %9.2f %7d",
+                    app, mode.name().toLowerCase(), threads.name().toLowerCase(), concurrency, bodySize, throughput, p50, p99, p999, errors);
+        }
+
+        String csv() {
+            return String.format("%s,%s,%s,%d,%d,%d,%d,%.1f,%.3f,%.3f,%.3f",
+                    app, mode.name().toLowerCase(), threads.name().toLowerCase(), concurrency, bodySize, requests, errors, throughput, p50, p99, p999);
+        }
+    }
+
+    private static final class Options {
+        private String app = "webmvc";
+        private List<TraceMode> modes = List.of(TraceMode.OFF, TraceMode.ON, TraceMode.SAMPLED);
+        private List<ThreadModel> threads = List.of(ThreadModel.PLATFORM);
+        private int[] concurrency = {16, 64};
+        private int[] bodySizes = {256, 16384};
+        private Duration warmup = Duration.ofSeconds(10);
+        private Duration duration = Duration.ofSeconds(30);
+        private double sampleRatio = 0.1;
+        private int appPort = 8080;
+        private int stubPort = 8089;
+        private long stubDelayMillis;
+        private List<String> jvmArgs = List.of();
+        private Path projectDir = Path.of(".");
+        private Path jar;
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value, got " + arg);
+                }
+                values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+
+            Options options = new Options();
+            values.forEach((name, value) -> {
+                switch (name) {
+                    case "app" -> options.app = value;
+                    case "modes" -> options.modes = Arrays.stream(value.split(",")).map(mode -> TraceMode.valueOf(mode.trim().toUpperCase())).toList();
+                    case "threads" -> options.threads = Arrays.stream(value.split(",")).map(threads -> ThreadModel.valueOf(threads.trim().toUpperCase())).toList();
+                    case "concurrency" -> options.concurrency = ints(value);
+                    case "body-sizes" -> options.bodySizes = ints(value);
+                    case "warmup" -> options.warmup = Duration.ofSeconds(Long.parseLong(value));
+                    case "duration" -> options.duration = Duration.ofSeconds(Long.parseLong(value));
+                    case "sample-ratio" -> options.sampleRatio = Double.parseDouble(value);
+                    case "app-port" -> options.appPort = Integer.parseInt(value);
+                    case "stub-port" -> options.stubPort = Integer.parseInt(value);
+                    case "stub-delay" -> options.stubDelayMillis = Long.parseLong(value);
+                    case "jvm-args" -> options.jvmArgs = value.isBlank() ? List.of() : List.of(value.trim().split("\\s+"));
+                    case "project-dir" -> options.projectDir = Path.of(value);
+                    case "app-jar" -> options.jar = Path.of(value);
+                    default -> throw new IllegalArgumentException("Unknown option --" + name);
+                }
+            });
+            if (options.threads.contains(ThreadModel.VIRTUAL) && !"webmvc".equals(options.app)) {
+                throw new IllegalArgumentException("--threads=virtual needs --app=webmvc, only it has a virtual-threads profile");
+            }
+            return options;
+        }
+
+        /**
+         * The packaged application: webmvc's repackaged jar, or webflux's {@code -exec} jar.
+         */
+        Path appJar() throws IOException {
+            if (jar != null) {
+                return jar;
+            }
+            Path target = projectDir.resolve("zxf-springboot-trace-" + app + "/target");
+            String suffix = "webflux".equals(app) ? "-exec.jar" : "-SNAPSHOT.jar";
+            try (var files = Files.list(target)) {
+                return files.filter(file -> file.getFileName().toString().endsWith(suffix)).findFirst()
+                        .orElseThrow(() -> new IllegalStateException("No packaged " + app + " jar in " + target + ", run mvn package first"));
+            }
+        }
+
+        private static int[] ints(String value) {
+            return Arrays.stream(value.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+        }
+    }
+}
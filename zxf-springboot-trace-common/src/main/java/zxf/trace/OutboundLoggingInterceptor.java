@@ -1,7 +1,7 @@
 package zxf.trace;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpRequest;
@@ -10,88 +10,173 @@ import org.springframework.http.MediaType;
 import org.springframework.http.client.ClientHttpRequestExecution;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.ClientHttpResponse;
-import org.springframework.stereotype.Component;
-import org.springframework.util.StreamUtils;
-import org.springframework.web.client.RestClientResponseException;
-import zxf.trace.http.BufferingClientHttpResponseWrapper;
-import zxf.trace.sensitive.SensitiveDataHelper;
+import zxf.trace.capture.CapturePolicy;
+import zxf.trace.capture.CapturedBody;
+import zxf.trace.http.TeeClientHttpResponseWrapper;
+import zxf.trace.metrics.TraceMeter;
+import zxf.trace.metrics.TraceMetrics;
+import zxf.trace.record.TraceHeaders;
+import zxf.trace.record.TraceRecord;
+import zxf.trace.record.TraceRecordDispatcher;
+import zxf.trace.route.RoutePolicy;
+import zxf.trace.route.RoutePolicyResolver;
+import zxf.trace.sampling.TraceGroupBuffer;
+import zxf.trace.sampling.TraceSampler;
 
 import java.io.IOException;
+import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
-import java.util.function.Consumer;
+import java.util.Objects;
 
 @Slf4j
-@Component
 public class OutboundLoggingInterceptor implements ClientHttpRequestInterceptor {
     @Autowired
-    private SensitiveDataHelper sensitiveDataHelper;
+    private CapturePolicy capturePolicy;
+    @Autowired
+    private TraceRecordDispatcher traceRecordDispatcher;
+    @Autowired
+    private TraceSampler traceSampler;
+    @Autowired
+    private TraceGroupBuffer traceGroupBuffer;
+    @Autowired
+    private TraceMetrics traceMetrics;
+    @Autowired
+    private RoutePolicyResolver routePolicyResolver;
 
     @Override
     public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        RoutePolicy routePolicy = routePolicyOf(request.getURI());
+        if (!routePolicy.isTraced()) {
+            return execution.execute(request, body);
+        }
+
+        long startNanos = System.nanoTime();
         try {
-            ClientHttpResponse response = new BufferingClientHttpResponseWrapper(execution.execute(request, body));
-            logRequestAndResponse(request, body, response.getStatusCode(), response.getHeaders(), StreamUtils.copyToByteArray(response.getBody()));
-            return response;
-        } catch (RestClientResponseException ex) {
-            logRequestAndResponse(request, body, ex.getStatusCode(), ex.getResponseHeaders(), ex.getResponseBodyAsByteArray());
-            throw ex;
+            ClientHttpResponse rawResponse = execution.execute(request, body);
+            long durationNanos = System.nanoTime() - startNanos;
+            HttpStatusCode statusCode = rawResponse.getStatusCode();
+            TraceMeter meter = meterOf(request.getURI());
+            meter.responseStarted(durationNanos);
+            if (!shouldTrace(request.getURI(), routePolicy, statusCode, traceGroupBuffer.isGroupOpen())) {
+                // Not sampled: nothing is captured or logged, the response is only wrapped to time it until closed
+                return meter.isEnabled() ? new TeeClientHttpResponseWrapper(rawResponse, 0, responseBody -> meter.completed(System.nanoTime() - startNanos))
+                        : rawResponse;
+            }
+
+            // The body is captured while the caller reads it and logged once the response is closed
+            return new TeeClientHttpResponseWrapper(rawResponse, capturePolicy.outboundLimit(routePolicy, rawResponse.getHeaders()), responseBody -> {
+                meter.completed(System.nanoTime() - startNanos);
+                logRequestAndResponse(request, body, routePolicy, statusCode, rawResponse.getHeaders(), responseBody, durationNanos);
+            });
         } catch (Exception ex) {
             log.error("Exception when send request", ex);
-            logRequestAndResponse(request, body, null, null, null);
+            logRequestAndResponse(request, body, routePolicy, null, null, null, System.nanoTime() - startNanos);
             throw ex;
         }
     }
 
-    private void logRequestAndResponse(HttpRequest request, byte[] requestBody, HttpStatusCode statusCode, HttpHeaders responseHeaders, byte[] responseBody) throws IOException {
+    /**
+     * Outbound routes are matched on the path of the request URL.
+     */
+    public RoutePolicy routePolicyOf(URI uri) {
+        return routePolicyResolver.outbound(uri.getRawPath());
+    }
+
+    /**
+     * Head sampling of an outbound exchange. Inside a tail-sampled request tree the inbound exchange
+     * decides when it ends, so grouped exchanges are always traced.
+     */
+    public boolean shouldTrace(URI uri, RoutePolicy routePolicy, HttpStatusCode statusCode, boolean grouped) {
+        if (grouped || statusCode.isError() || sample(uri, routePolicy)) {
+            return true;
+        }
+        meterOf(uri).skipped();
+        return false;
+    }
+
+    /**
+     * Head sampling of a successful outbound exchange, for clients which must decide before the status is known.
+     */
+    public boolean sample(URI uri, RoutePolicy routePolicy) {
+        return traceSampler.sample(String.valueOf(uri.getAuthority()), routePolicy);
+    }
+
+    /**
+     * Outbound exchanges are metered per downstream host, which keeps the number of routes bounded.
+     */
+    public TraceMeter meterOf(URI uri) {
+        return traceMetrics.meter(TraceRecord.Direction.OUTBOUND, String.valueOf(uri.getAuthority()));
+    }
+
+    private void logRequestAndResponse(HttpRequest request, byte[] requestBody, RoutePolicy routePolicy, HttpStatusCode statusCode,
+                                       HttpHeaders responseHeaders, CapturedBody responseBody, long durationNanos) {
+        logRequestAndResponse(request.getURI(), routePolicy, request.getMethod().name(), request.getHeaders(),
+                captureOf(requestBody, request.getHeaders(), routePolicy), statusCode, responseHeaders, responseBody, durationNanos);
+    }
+
+    /**
+     * Captures a body RestTemplate already holds in memory, unless the capture policy skips its type.
+     */
+    private CapturedBody captureOf(byte[] body, HttpHeaders headers, RoutePolicy routePolicy) {
+        long length = body == null ? 0 : body.length;
+        int limit = capturePolicy.outboundLimit(routePolicy, headers == null ? null : headers.getFirst(HttpHeaders.CONTENT_TYPE), length);
+        return limit > 0 ? CapturedBody.of(body, limit) : CapturedBody.notCaptured(length);
+    }
+
+    /**
+     * Builds the trace record of an outbound exchange made by any client and hands it to the
+     * current trace group or the dispatcher. {@code statusCode} is null when no response came back.
+     */
+    public void logRequestAndResponse(URI uri, RoutePolicy routePolicy, String method, HttpHeaders requestHeaders, CapturedBody requestBody,
+                                      HttpStatusCode statusCode, HttpHeaders responseHeaders, CapturedBody responseBody, long durationNanos) {
         try {
             boolean isError = statusCode == null || statusCode.isError();
 
-            boolean loggingEnabled = isError ? log.isErrorEnabled() : log.isInfoEnabled();
-            if (!loggingEnabled) {
+            TraceMeter meter = meterOf(uri);
+            if (!log.isEnabledForLevel(routePolicy.level(isError))) {
+                meter.skipped();
                 return;
             }
 
-            Consumer<String> logger = isError ? log::error : log::info;
-            logger.accept("=================================================Request begin(Outbound)=================================================");
-            logger.accept("URL             : " + request.getURI());
-            logger.accept("Methed          : " + request.getMethod());
-            logger.accept("Headers         : " + formatHeaders(request.getHeaders()));
-            logger.accept("Request Body    : " + readAndMaskJsonContent(request.getHeaders().getContentType(), requestBody, StandardCharsets.UTF_8));
-            logger.accept("=================================================Request end(Outbound)=================================================");
-
-            if (statusCode != null) {
-                logger.accept("=================================================Response begin(Inbound)=================================================");
-                logger.accept("Status code     : " + statusCode.value());
-                logger.accept("Headers         : " + formatHeaders(responseHeaders));
-                logger.accept("Response Body   : " + readAndMaskJsonContent(responseHeaders.getContentType(), responseBody, StandardCharsets.UTF_8));
-                logger.accept("=================================================Response end(Inbound)=================================================");
+            long captureStartNanos = meter.start();
+            MediaType requestContentType = requestHeaders.getContentType();
+            MediaType responseContentType = responseHeaders == null ? null : responseHeaders.getContentType();
+            // Only snapshot here, masking and formatting run on the trace dispatcher thread
+            TraceRecord record = TraceRecord.builder()
+                    .logger(log)
+                    .direction(TraceRecord.Direction.OUTBOUND)
+                    .error(isError)
+                    .url(uri.toString())
+                    .method(method)
+                    .requestHeaders(TraceHeaders.of(requestHeaders))
+                    .requestContentType(Objects.toString(requestContentType, null))
+                    .requestCharset(toCharset(requestContentType))
+                    .requestBody(requestBody)
+                    .statusCode(statusCode == null ? null : statusCode.value())
+                    .responseHeaders(TraceHeaders.of(responseHeaders))
+                    .responseContentType(Objects.toString(responseContentType, null))
+                    .responseCharset(toCharset(responseContentType))
+                    .responseBody(responseBody)
+                    .durationNanos(durationNanos)
+                    .mdcContext(MDC.getCopyOfContextMap())
+                    .createdNanos(System.nanoTime())
+                    .meter(meter)
+                    .routePolicy(routePolicy)
+                    .build();
+            meter.captured(captureStartNanos);
+            meter.body(requestBody);
+            meter.body(responseBody);
+            // Buffered when part of a tail-sampled request tree, otherwise logged right away
+            if (!traceGroupBuffer.offer(record)) {
+                traceRecordDispatcher.dispatch(record);
             }
         } catch (Exception ex) {
             log.error("Exception when log request and response", ex);
         }
     }
 
-    private String formatHeaders(HttpHeaders headers) {
-        HttpHeaders clearHttpHeaders = new HttpHeaders();
-        headers.forEach((key, value) -> {
-            boolean isSensitiveHeader = sensitiveDataHelper.isSensitiveHeader(key);
-            clearHttpHeaders.put(key, isSensitiveHeader ? List.of("******") : value);
-        });
-        return clearHttpHeaders.toString();
-    }
-
-    private String readAndMaskJsonContent(MediaType mediaType, byte[] contentBytes, Charset charset) {
-        try {
-            String contentString = new String(contentBytes, charset);
-            if (StringUtils.isEmpty(contentString) || !MediaType.APPLICATION_JSON.isCompatibleWith(mediaType)) {
-                return contentString;
-            }
-            return sensitiveDataHelper.maskSensitiveDataFromJson(contentString);
-        } catch (Exception ex) {
-            log.error("Exception when read content", ex);
-            return "Content read error";
-        }
+    private Charset toCharset(MediaType mediaType) {
+        return mediaType == null || mediaType.getCharset() == null ? StandardCharsets.UTF_8 : mediaType.getCharset();
     }
 }
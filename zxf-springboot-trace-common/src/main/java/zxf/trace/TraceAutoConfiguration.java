@@ -0,0 +1,144 @@
+package zxf.trace;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import zxf.trace.capture.CaptureConfiguration;
+import zxf.trace.capture.CapturePolicy;
+import zxf.trace.http.HttpClientTracing;
+import zxf.trace.http.RestClientTracingPostProcessor;
+import zxf.trace.mdc.MDCConfiguration;
+import zxf.trace.mdc.MDCHelper;
+import zxf.trace.metrics.TraceLatencyEndpoint;
+import zxf.trace.metrics.TraceMetrics;
+import zxf.trace.metrics.TraceMetricsConfiguration;
+import zxf.trace.record.AsyncTraceConfiguration;
+import zxf.trace.record.BannerTraceRecordRenderer;
+import zxf.trace.record.JsonTraceRecordRenderer;
+import zxf.trace.record.TraceRecordDispatcher;
+import zxf.trace.record.TraceRecordWriter;
+import zxf.trace.record.TraceRenderConfiguration;
+import zxf.trace.route.RouteConfiguration;
+import zxf.trace.route.RoutePolicyResolver;
+import zxf.trace.sampling.SamplingConfiguration;
+import zxf.trace.sampling.TailSamplingConfiguration;
+import zxf.trace.sampling.TraceGroupBuffer;
+import zxf.trace.sampling.TraceSampler;
+import zxf.trace.sensitive.SensitiveConfiguration;
+import zxf.trace.sensitive.SensitiveDataHelper;
+
+/**
+ * The servlet-free trace core shared by both web stacks: capture policy, masking, sampling, metrics,
+ * the record pipeline and the outbound client interceptors. The servlet and reactive adapters are
+ * configured after it, each only in its own kind of web application.
+ */
+@AutoConfiguration
+@EnableConfigurationProperties({CaptureConfiguration.class, MDCConfiguration.class, TraceMetricsConfiguration.class, AsyncTraceConfiguration.class,
+        TraceRenderConfiguration.class, RouteConfiguration.class, SamplingConfiguration.class, TailSamplingConfiguration.class, SensitiveConfiguration.class})
+public class TraceAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public MDCHelper mdcHelper() {
+        return new MDCHelper();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public SensitiveDataHelper sensitiveDataHelper() {
+        return new SensitiveDataHelper();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CapturePolicy capturePolicy() {
+        return new CapturePolicy();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RoutePolicyResolver routePolicyResolver() {
+        return new RoutePolicyResolver();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TraceSampler traceSampler() {
+        return new TraceSampler();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TraceGroupBuffer traceGroupBuffer() {
+        return new TraceGroupBuffer();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TraceMetrics traceMetrics() {
+        return new TraceMetrics();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BannerTraceRecordRenderer bannerTraceRecordRenderer() {
+        return new BannerTraceRecordRenderer();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public JsonTraceRecordRenderer jsonTraceRecordRenderer() {
+        return new JsonTraceRecordRenderer();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TraceRecordWriter traceRecordWriter() {
+        return new TraceRecordWriter();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TraceRecordDispatcher traceRecordDispatcher() {
+        return new TraceRecordDispatcher();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public OutboundLoggingInterceptor outboundLoggingInterceptor() {
+        return new OutboundLoggingInterceptor();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public HttpClientTracing httpClientTracing() {
+        return new HttpClientTracing();
+    }
+
+    /**
+     * Static, so registering the post-processor does not instantiate this configuration early.
+     */
+    @Bean
+    public static RestClientTracingPostProcessor restClientTracingPostProcessor(ObjectProvider<OutboundLoggingInterceptor> outboundLoggingInterceptor) {
+        return new RestClientTracingPostProcessor(outboundLoggingInterceptor);
+    }
+
+    /**
+     * Actuator is optional, the endpoint is only declared when it is on the classpath.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Endpoint.class)
+    static class TraceEndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public TraceLatencyEndpoint traceLatencyEndpoint() {
+            return new TraceLatencyEndpoint();
+        }
+    }
+}
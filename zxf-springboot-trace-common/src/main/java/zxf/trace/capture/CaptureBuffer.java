@@ -0,0 +1,86 @@
+package zxf.trace.capture;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Keeps the first {@code maxBytes} bytes written to it and counts the rest. Not thread safe, and
+ * deliberately not synchronized: a capture buffer belongs to a single message.
+ */
+public class CaptureBuffer {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int maxBytes;
+    private byte[] buffer = EMPTY;
+    private int size;
+    private long totalLength;
+
+    public CaptureBuffer(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param expectedLength the declared body length, or {@code -1}: a known length is allocated up front
+     *                       instead of growing the buffer by doubling
+     */
+    public CaptureBuffer(int maxBytes, long expectedLength) {
+        this(maxBytes);
+        if (expectedLength > 0 && maxBytes > 0) {
+            buffer = new byte[(int) Math.min(expectedLength, maxBytes)];
+        }
+    }
+
+    public void write(int b) {
+        totalLength++;
+        if (size < maxBytes) {
+            ensureCapacity(size + 1);
+            buffer[size++] = (byte) b;
+        }
+    }
+
+    public void write(byte[] b, int off, int len) {
+        totalLength += len;
+        int captured = Math.min(len, maxBytes - size);
+        if (captured > 0) {
+            ensureCapacity(size + captured);
+            System.arraycopy(b, off, buffer, size, captured);
+            size += captured;
+        }
+    }
+
+    /**
+     * Copies the readable bytes of {@code b} without moving its position, so the same buffer can
+     * still be handed on to its consumer.
+     */
+    public void write(ByteBuffer b) {
+        int len = b.remaining();
+        totalLength += len;
+        int captured = Math.min(len, maxBytes - size);
+        if (captured > 0) {
+            ensureCapacity(size + captured);
+            b.get(b.position(), buffer, size, captured);
+            size += captured;
+        }
+    }
+
+    public void reset() {
+        size = 0;
+        totalLength = 0;
+    }
+
+    public long getTotalLength() {
+        return totalLength;
+    }
+
+    public CapturedBody toCapturedBody() {
+        return new CapturedBody(Arrays.copyOf(buffer, size), totalLength, totalLength > size);
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > buffer.length) {
+            int newCapacity = Math.max(minCapacity, Math.max(INITIAL_CAPACITY, buffer.length * 2));
+            buffer = Arrays.copyOf(buffer, Math.min(newCapacity, maxBytes));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package zxf.trace.capture;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "trace.capture")
+public class CaptureConfiguration {
+    private Integer maxBodyBytes = 64 * 1024;
+    private Direction inbound = new Direction();
+    private Direction outbound = new Direction();
+    private Policy policy = new Policy();
+
+    public int inboundMaxBodyBytes() {
+        return inbound.getMaxBodyBytes() != null ? inbound.getMaxBodyBytes() : maxBodyBytes;
+    }
+
+    public int outboundMaxBodyBytes() {
+        return outbound.getMaxBodyBytes() != null ? outbound.getMaxBodyBytes() : maxBodyBytes;
+    }
+
+    @Data
+    public static class Direction {
+        private Integer maxBodyBytes;
+    }
+
+    /**
+     * Decides up front, from Content-Type and Content-Length, how much of a body is worth capturing.
+     * See {@link CapturePolicy}.
+     */
+    @Data
+    public static class Policy {
+        /**
+         * Binary and streaming bodies: never captured or even wrapped, only their length is logged.
+         */
+        private List<String> metadataOnlyTypes = List.of("image/*", "audio/*", "video/*", "font/*", "multipart/*",
+                "application/octet-stream", "application/pdf", "application/zip", "application/gzip", "application/grpc",
+                "application/x-protobuf", "text/event-stream", "application/x-ndjson", "application/stream+json");
+        /**
+         * Textual bodies, captured up to max-body-bytes.
+         */
+        private List<String> textTypes = List.of("application/json", "application/*+json", "application/xml",
+                "application/*+xml", "application/x-www-form-urlencoded", "text/*");
+        /**
+         * Bodies of any other or no type, and text bodies declared larger than head-only-above-bytes, keep only their head.
+         */
+        private Integer headBytes = 4096;
+        private Long headOnlyAboveBytes = 1024L * 1024;
+    }
+}
@@ -0,0 +1,138 @@
+package zxf.trace.capture;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import zxf.trace.route.RoutePolicy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides, before any body byte flows, how many bytes of a body to capture:
+ * <ul>
+ *     <li>{@code 0} for binary and streaming types, and for empty bodies: the body is not wrapped at all</li>
+ *     <li>max-body-bytes for textual types</li>
+ *     <li>head-bytes for any other or missing type, and for textual bodies declared larger than head-only-above-bytes</li>
+ * </ul>
+ * A chunked body has no Content-Length, so only its type counts. The capture mode of a route's
+ * {@link RoutePolicy} overrides the type rules.
+ */
+public class CapturePolicy {
+    private static final int MAX_CACHED_CONTENT_TYPES = 256;
+
+    @Autowired
+    private CaptureConfiguration captureConfiguration;
+
+    private List<MediaType> metadataOnlyTypes;
+    private List<MediaType> textTypes;
+    // Parsing a Content-Type on every exchange is wasted work, services only ever see a handful of types
+    private final Map<String, BodyType> bodyTypes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        metadataOnlyTypes = MediaType.parseMediaTypes(captureConfiguration.getPolicy().getMetadataOnlyTypes());
+        textTypes = MediaType.parseMediaTypes(captureConfiguration.getPolicy().getTextTypes());
+    }
+
+    public int inboundLimit(@Nullable String contentType, long contentLength) {
+        return limit(contentType, contentLength, captureConfiguration.inboundMaxBodyBytes());
+    }
+
+    public int outboundLimit(@Nullable String contentType, long contentLength) {
+        return limit(contentType, contentLength, captureConfiguration.outboundMaxBodyBytes());
+    }
+
+    public int inboundLimit(HttpHeaders headers) {
+        return inboundLimit(headers.getFirst(HttpHeaders.CONTENT_TYPE), contentLength(headers));
+    }
+
+    public int outboundLimit(HttpHeaders headers) {
+        return outboundLimit(headers.getFirst(HttpHeaders.CONTENT_TYPE), contentLength(headers));
+    }
+
+    public int inboundLimit(RoutePolicy routePolicy, @Nullable String contentType, long contentLength) {
+        return limit(routePolicy, contentType, contentLength, captureConfiguration.inboundMaxBodyBytes());
+    }
+
+    public int outboundLimit(RoutePolicy routePolicy, @Nullable String contentType, long contentLength) {
+        return limit(routePolicy, contentType, contentLength, captureConfiguration.outboundMaxBodyBytes());
+    }
+
+    public int inboundLimit(RoutePolicy routePolicy, HttpHeaders headers) {
+        return inboundLimit(routePolicy, headers.getFirst(HttpHeaders.CONTENT_TYPE), contentLength(headers));
+    }
+
+    public int outboundLimit(RoutePolicy routePolicy, HttpHeaders headers) {
+        return outboundLimit(routePolicy, headers.getFirst(HttpHeaders.CONTENT_TYPE), contentLength(headers));
+    }
+
+    private int limit(RoutePolicy routePolicy, @Nullable String contentType, long contentLength, int maxBodyBytes) {
+        if (contentLength == 0) {
+            return 0;
+        }
+        return switch (routePolicy.capture()) {
+            case DEFAULT -> limit(contentType, contentLength, maxBodyBytes);
+            case FULL -> maxBodyBytes;
+            case HEAD -> Math.min(captureConfiguration.getPolicy().getHeadBytes(), maxBodyBytes);
+            case METADATA, IGNORE -> 0;
+        };
+    }
+
+    private int limit(@Nullable String contentType, long contentLength, int maxBodyBytes) {
+        if (contentLength == 0) {
+            return 0;
+        }
+        CaptureConfiguration.Policy policy = captureConfiguration.getPolicy();
+        int headBytes = Math.min(policy.getHeadBytes(), maxBodyBytes);
+        return switch (bodyType(contentType)) {
+            case BINARY -> 0;
+            case TEXT -> contentLength > policy.getHeadOnlyAboveBytes() ? headBytes : maxBodyBytes;
+            case OTHER -> headBytes;
+        };
+    }
+
+    private BodyType bodyType(@Nullable String contentType) {
+        if (contentType == null) {
+            return BodyType.OTHER;
+        }
+        // Parameters never change the type rules, so multipart boundaries and charsets share the entry of their type
+        int parametersStart = contentType.indexOf(';');
+        String type = parametersStart < 0 ? contentType : contentType.substring(0, parametersStart).trim();
+        BodyType bodyType = bodyTypes.get(type);
+        if (bodyType == null) {
+            bodyType = classify(type);
+            if (bodyTypes.size() < MAX_CACHED_CONTENT_TYPES) {
+                bodyTypes.put(type, bodyType);
+            }
+        }
+        return bodyType;
+    }
+
+    private BodyType classify(String contentType) {
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException ex) {
+            return BodyType.OTHER;
+        }
+        // Binary wins, text/* would otherwise match text/event-stream
+        if (metadataOnlyTypes.stream().anyMatch(type -> type.includes(mediaType))) {
+            return BodyType.BINARY;
+        }
+        return textTypes.stream().anyMatch(type -> type.includes(mediaType)) ? BodyType.TEXT : BodyType.OTHER;
+    }
+
+    private static long contentLength(HttpHeaders headers) {
+        // A chunked body has no length even if a Content-Length header slipped through
+        return "chunked".equalsIgnoreCase(headers.getFirst(HttpHeaders.TRANSFER_ENCODING)) ? CapturedBody.UNKNOWN_LENGTH : headers.getContentLength();
+    }
+
+    private enum BodyType {
+        BINARY, TEXT, OTHER
+    }
+}
@@ -0,0 +1,46 @@
+package zxf.trace.capture;
+
+import java.util.Arrays;
+
+/**
+ * The part of a message body kept for logging, together with the real length of the body.
+ *
+ * @param content     the captured bytes, never longer than the capture limit
+ * @param totalLength the real body length, or {@code -1} when unknown (e.g. chunked transfer)
+ * @param truncated   whether the body was longer than what was captured
+ */
+public record CapturedBody(byte[] content, long totalLength, boolean truncated) {
+    public static final long UNKNOWN_LENGTH = -1;
+
+    /**
+     * Captures at most {@code maxBytes} of a body that is already fully in memory.
+     */
+    public static CapturedBody of(byte[] body, int maxBytes) {
+        if (body == null) {
+            return new CapturedBody(new byte[0], 0, false);
+        }
+        if (body.length <= maxBytes) {
+            return new CapturedBody(body, body.length, false);
+        }
+        return new CapturedBody(Arrays.copyOf(body, maxBytes), body.length, true);
+    }
+
+    /**
+     * A body the capture policy chose not to capture, only its length is known.
+     */
+    public static CapturedBody notCaptured(long totalLength) {
+        return new CapturedBody(new byte[0], totalLength, totalLength != 0);
+    }
+
+    public String truncationMarker() {
+        if (!truncated) {
+            return "";
+        }
+        if (content.length == 0) {
+            return totalLength == UNKNOWN_LENGTH ? "[body not captured]" : String.format("[body not captured, %d bytes]", totalLength);
+        }
+        return totalLength == UNKNOWN_LENGTH
+                ? String.format(" ...[truncated, first %d bytes logged, total length unknown]", content.length)
+                : String.format(" ...[truncated, first %d of %d bytes logged]", content.length, totalLength);
+    }
+}
@@ -1,50 +0,0 @@
-package zxf.trace.http;
-
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatusCode;
-import org.springframework.http.client.ClientHttpResponse;
-import org.springframework.lang.Nullable;
-import org.springframework.util.StreamUtils;
-
-public class BufferingClientHttpResponseWrapper implements ClientHttpResponse {
-    private final ClientHttpResponse response;
-    @Nullable
-    private byte[] body;
-
-    public BufferingClientHttpResponseWrapper(ClientHttpResponse response) {
-        this.response = response;
-    }
-
-    @Override
-    public HttpStatusCode getStatusCode() throws IOException {
-        return this.response.getStatusCode();
-    }
-
-    @Override
-    public String getStatusText() throws IOException {
-        return this.response.getStatusText();
-    }
-
-    @Override
-    public HttpHeaders getHeaders() {
-        return this.response.getHeaders();
-    }
-
-    @Override
-    public InputStream getBody() throws IOException {
-        if (this.body == null) {
-            this.body = StreamUtils.copyToByteArray(this.response.getBody());
-        }
-
-        return new ByteArrayInputStream(this.body);
-    }
-
-    @Override
-    public void close() {
-        this.response.close();
-    }
-}
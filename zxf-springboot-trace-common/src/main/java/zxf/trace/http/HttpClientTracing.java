@@ -0,0 +1,26 @@
+package zxf.trace.http;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import zxf.trace.OutboundLoggingInterceptor;
+import zxf.trace.capture.CapturePolicy;
+import zxf.trace.sampling.TraceGroupBuffer;
+
+import java.net.http.HttpClient;
+
+/**
+ * Adds outbound trace logging to a {@link java.net.http.HttpClient}, with the same sampling, capture
+ * limits and record format as the RestTemplate / RestClient interceptor.
+ */
+public class HttpClientTracing {
+    @Autowired
+    private OutboundLoggingInterceptor outboundLoggingInterceptor;
+    @Autowired
+    private CapturePolicy capturePolicy;
+    @Autowired
+    private TraceGroupBuffer traceGroupBuffer;
+
+    public HttpClient wrap(HttpClient httpClient) {
+        return httpClient instanceof TracingHttpClient ? httpClient
+                : new TracingHttpClient(httpClient, outboundLoggingInterceptor, traceGroupBuffer, capturePolicy);
+    }
+}
@@ -0,0 +1,33 @@
+package zxf.trace.http;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.web.client.RestClient;
+import zxf.trace.OutboundLoggingInterceptor;
+
+/**
+ * Adds the {@link OutboundLoggingInterceptor} to every {@link RestClient.Builder} bean, including the
+ * prototype builder Spring Boot hands out, so RestClients built from them are traced without wiring.
+ */
+public class RestClientTracingPostProcessor implements BeanPostProcessor {
+    // Looked up lazily: a post-processor must not pull the interceptor and its dependencies in early
+    private final ObjectProvider<OutboundLoggingInterceptor> outboundLoggingInterceptor;
+
+    public RestClientTracingPostProcessor(ObjectProvider<OutboundLoggingInterceptor> outboundLoggingInterceptor) {
+        this.outboundLoggingInterceptor = outboundLoggingInterceptor;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof RestClient.Builder builder) {
+            OutboundLoggingInterceptor interceptor = outboundLoggingInterceptor.getObject();
+            builder.requestInterceptors(interceptors -> {
+                if (!interceptors.contains(interceptor)) {
+                    interceptors.add(interceptor);
+                }
+            });
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,120 @@
+package zxf.trace.http;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.lang.Nullable;
+import zxf.trace.capture.CaptureBuffer;
+import zxf.trace.capture.CapturedBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Records at most {@code maxBodyBytes} of the response body while the caller's message converter
+ * reads it, and hands the captured head to {@code onClose} when the response is closed. Nothing is
+ * read ahead, so large bodies stream straight through to the caller.
+ */
+public class TeeClientHttpResponseWrapper implements ClientHttpResponse {
+    private final ClientHttpResponse response;
+    private final CaptureBuffer captureBuffer;
+    private final Consumer<CapturedBody> onClose;
+    @Nullable
+    private InputStream body;
+    private boolean endOfStream;
+    private boolean closed;
+
+    public TeeClientHttpResponseWrapper(ClientHttpResponse response, int maxBodyBytes, Consumer<CapturedBody> onClose) {
+        this.response = response;
+        this.captureBuffer = new CaptureBuffer(maxBodyBytes, response.getHeaders().getContentLength());
+        this.onClose = onClose;
+    }
+
+    @Override
+    public HttpStatusCode getStatusCode() throws IOException {
+        return this.response.getStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+        return this.response.getStatusText();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return this.response.getHeaders();
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+        if (this.body == null) {
+            this.body = new TeeInputStream(this.response.getBody());
+        }
+
+        return this.body;
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.response.close();
+        } finally {
+            if (!this.closed) {
+                this.closed = true;
+                this.onClose.accept(getCapturedBody());
+            }
+        }
+    }
+
+    private CapturedBody getCapturedBody() {
+        CapturedBody capturedBody = this.captureBuffer.toCapturedBody();
+        long contentLength = getHeaders().getContentLength();
+        if (this.endOfStream || contentLength == capturedBody.totalLength()) {
+            return capturedBody;
+        }
+
+        // Closed before the caller read it all: only what was read is known
+        return new CapturedBody(capturedBody.content(), contentLength >= 0 ? contentLength : CapturedBody.UNKNOWN_LENGTH, true);
+    }
+
+    private class TeeInputStream extends InputStream {
+        private final InputStream delegate;
+
+        private TeeInputStream(InputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = this.delegate.read();
+            if (b < 0) {
+                endOfStream = true;
+            } else {
+                captureBuffer.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = this.delegate.read(b, off, len);
+            if (count < 0) {
+                endOfStream = true;
+            } else {
+                captureBuffer.write(b, off, count);
+            }
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return this.delegate.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.delegate.close();
+        }
+    }
+}
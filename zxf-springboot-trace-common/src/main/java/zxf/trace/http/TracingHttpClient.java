@@ -0,0 +1,426 @@
+package zxf.trace.http;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.util.CollectionUtils;
+import zxf.trace.OutboundLoggingInterceptor;
+import zxf.trace.capture.CaptureBuffer;
+import zxf.trace.capture.CapturePolicy;
+import zxf.trace.capture.CapturedBody;
+import zxf.trace.metrics.TraceMeter;
+import zxf.trace.route.RoutePolicy;
+import zxf.trace.sampling.TraceGroupBuffer;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * {@link HttpClient} decorator which tees request bodies through the {@code BodyPublisher} and
+ * response bodies through the {@code BodySubscriber}, and logs the exchange once the response body
+ * completes. Capture state is confined to one exchange and handed over through the Flow protocol,
+ * nothing is synchronized, so callers on virtual threads never pin their carrier.
+ * <p>
+ * The lifecycle methods {@code HttpClient} gained in JDK 21 are declared without {@code @Override}, so
+ * the class still compiles for 17 and overrides them when running on 21+, and they reach the delegate
+ * reflectively for the same reason.
+ */
+@Slf4j
+class TracingHttpClient extends HttpClient {
+    private static final Method SHUTDOWN = lifecycleMethod("shutdown");
+    private static final Method SHUTDOWN_NOW = lifecycleMethod("shutdownNow");
+    private static final Method AWAIT_TERMINATION = lifecycleMethod("awaitTermination", Duration.class);
+    private static final Method IS_TERMINATED = lifecycleMethod("isTerminated");
+    private static final Method CLOSE = lifecycleMethod("close");
+
+    private final HttpClient delegate;
+    private final OutboundLoggingInterceptor outboundLoggingInterceptor;
+    private final TraceGroupBuffer traceGroupBuffer;
+    private final CapturePolicy capturePolicy;
+
+    TracingHttpClient(HttpClient delegate, OutboundLoggingInterceptor outboundLoggingInterceptor, TraceGroupBuffer traceGroupBuffer, CapturePolicy capturePolicy) {
+        this.delegate = delegate;
+        this.outboundLoggingInterceptor = outboundLoggingInterceptor;
+        this.traceGroupBuffer = traceGroupBuffer;
+        this.capturePolicy = capturePolicy;
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException, InterruptedException {
+        RoutePolicy routePolicy = outboundLoggingInterceptor.routePolicyOf(request.uri());
+        if (!routePolicy.isTraced()) {
+            return delegate.send(request, responseBodyHandler);
+        }
+        TracedExchange exchange = new TracedExchange(request, routePolicy);
+        try {
+            return delegate.send(exchange.request(), exchange.wrap(responseBodyHandler));
+        } catch (IOException | InterruptedException | RuntimeException ex) {
+            exchange.failed(ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) {
+        RoutePolicy routePolicy = outboundLoggingInterceptor.routePolicyOf(request.uri());
+        if (!routePolicy.isTraced()) {
+            return delegate.sendAsync(request, responseBodyHandler);
+        }
+        TracedExchange exchange = new TracedExchange(request, routePolicy);
+        return delegate.sendAsync(exchange.request(), exchange.wrap(responseBodyHandler)).whenComplete(exchange::completed);
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler,
+                                                            HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+        RoutePolicy routePolicy = outboundLoggingInterceptor.routePolicyOf(request.uri());
+        if (!routePolicy.isTraced()) {
+            return delegate.sendAsync(request, responseBodyHandler, pushPromiseHandler);
+        }
+        TracedExchange exchange = new TracedExchange(request, routePolicy);
+        return delegate.sendAsync(exchange.request(), exchange.wrap(responseBodyHandler), pushPromiseHandler).whenComplete(exchange::completed);
+    }
+
+    @Override
+    public Optional<CookieHandler> cookieHandler() {
+        return delegate.cookieHandler();
+    }
+
+    @Override
+    public Optional<Duration> connectTimeout() {
+        return delegate.connectTimeout();
+    }
+
+    @Override
+    public Redirect followRedirects() {
+        return delegate.followRedirects();
+    }
+
+    @Override
+    public Optional<ProxySelector> proxy() {
+        return delegate.proxy();
+    }
+
+    @Override
+    public SSLContext sslContext() {
+        return delegate.sslContext();
+    }
+
+    @Override
+    public SSLParameters sslParameters() {
+        return delegate.sslParameters();
+    }
+
+    @Override
+    public Optional<Authenticator> authenticator() {
+        return delegate.authenticator();
+    }
+
+    @Override
+    public Version version() {
+        return delegate.version();
+    }
+
+    @Override
+    public Optional<Executor> executor() {
+        return delegate.executor();
+    }
+
+    @Override
+    public WebSocket.Builder newWebSocketBuilder() {
+        return delegate.newWebSocketBuilder();
+    }
+
+    public void shutdown() {
+        invokeDelegate(SHUTDOWN);
+    }
+
+    public void shutdownNow() {
+        invokeDelegate(SHUTDOWN_NOW);
+    }
+
+    public boolean awaitTermination(Duration duration) throws InterruptedException {
+        try {
+            return AWAIT_TERMINATION == null || (Boolean) AWAIT_TERMINATION.invoke(delegate, duration);
+        } catch (InvocationTargetException ex) {
+            if (ex.getCause() instanceof InterruptedException interrupted) {
+                throw interrupted;
+            }
+            throw rethrow(ex);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public boolean isTerminated() {
+        return Boolean.TRUE.equals(invokeDelegate(IS_TERMINATED));
+    }
+
+    public void close() {
+        invokeDelegate(CLOSE);
+    }
+
+    private Object invokeDelegate(Method method) {
+        if (method == null) {
+            return null;
+        }
+        try {
+            return method.invoke(delegate);
+        } catch (InvocationTargetException ex) {
+            throw rethrow(ex);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static RuntimeException rethrow(InvocationTargetException ex) {
+        if (ex.getCause() instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (ex.getCause() instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(ex.getCause());
+    }
+
+    private static Method lifecycleMethod(String name, Class<?>... parameterTypes) {
+        try {
+            return HttpClient.class.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException ex) {
+            // Before JDK 21: the client has no lifecycle, these methods override nothing
+            return null;
+        }
+    }
+
+    private class TracedExchange {
+        private final HttpRequest request;
+        // Stays null when the request has no body or the capture policy skips it
+        private CaptureBuffer requestCapture;
+        private long requestLength;
+        private final long startNanos = System.nanoTime();
+        // Taken on the calling thread, the response side completes on the client's executor
+        private final Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+        private final boolean grouped = traceGroupBuffer.isGroupOpen();
+        private final AtomicBoolean logged = new AtomicBoolean();
+        private final TraceMeter meter;
+        private final RoutePolicy routePolicy;
+
+        private TracedExchange(HttpRequest request, RoutePolicy routePolicy) {
+            this.request = request;
+            this.routePolicy = routePolicy;
+            this.meter = outboundLoggingInterceptor.meterOf(request.uri());
+        }
+
+        private HttpRequest request() {
+            Optional<HttpRequest.BodyPublisher> bodyPublisher = request.bodyPublisher();
+            if (bodyPublisher.isEmpty()) {
+                return request;
+            }
+            requestLength = bodyPublisher.get().contentLength();
+            int limit = capturePolicy.outboundLimit(routePolicy, request.headers().firstValue(HttpHeaders.CONTENT_TYPE).orElse(null), requestLength);
+            if (limit == 0) {
+                return request;
+            }
+            requestCapture = new CaptureBuffer(limit, requestLength);
+            return HttpRequest.newBuilder(request, (name, value) -> true)
+                    .method(request.method(), new TeeBodyPublisher(bodyPublisher.get(), requestCapture))
+                    .build();
+        }
+
+        private <T> HttpResponse.BodyHandler<T> wrap(HttpResponse.BodyHandler<T> bodyHandler) {
+            return responseInfo -> {
+                long durationNanos = System.nanoTime() - startNanos;
+                HttpStatusCode statusCode = HttpStatusCode.valueOf(responseInfo.statusCode());
+                meter.responseStarted(durationNanos);
+                HttpResponse.BodySubscriber<T> bodySubscriber = bodyHandler.apply(responseInfo);
+                if (!outboundLoggingInterceptor.shouldTrace(request.uri(), routePolicy, statusCode, grouped)) {
+                    logged.set(true);
+                    // Not sampled: nothing is captured, the body is only timed until it completes
+                    return meter.isEnabled() ? new TeeBodySubscriber<>(bodySubscriber, new CaptureBuffer(0), this::completed, this::failed) : bodySubscriber;
+                }
+
+                HttpHeaders responseHeaders = toHttpHeaders(responseInfo.headers());
+                CaptureBuffer responseCapture = new CaptureBuffer(capturePolicy.outboundLimit(routePolicy, responseHeaders), responseHeaders.getContentLength());
+                return new TeeBodySubscriber<>(bodySubscriber, responseCapture, () -> {
+                    completed();
+                    record(statusCode, responseHeaders, responseCapture.toCapturedBody(), durationNanos);
+                }, throwable -> failed(throwable, responseHeaders, brokenOff(responseCapture.toCapturedBody(), responseHeaders.getContentLength())));
+            };
+        }
+
+        private void completed() {
+            meter.completed(System.nanoTime() - startNanos);
+        }
+
+        private void completed(HttpResponse<?> response, Throwable throwable) {
+            if (throwable != null) {
+                failed(throwable);
+            }
+        }
+
+        private void failed(Throwable throwable) {
+            failed(throwable, null, null);
+        }
+
+        /**
+         * The exchange broke off, possibly after the response head: whatever arrived is logged as an
+         * error, and the latency meter is left alone since the response never completed.
+         */
+        private void failed(Throwable throwable, HttpHeaders responseHeaders, CapturedBody responseBody) {
+            if (!logged.get()) {
+                log.error("Exception when send request", throwable);
+                record(null, responseHeaders, responseBody, System.nanoTime() - startNanos);
+            }
+        }
+
+        private void record(HttpStatusCode statusCode, HttpHeaders responseHeaders, CapturedBody responseBody, long durationNanos) {
+            if (!logged.compareAndSet(false, true)) {
+                return;
+            }
+
+            // Restore the caller's MDC so the record carries its request id and finds its trace group
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            setMdc(mdcContext);
+            try {
+                outboundLoggingInterceptor.logRequestAndResponse(request.uri(), routePolicy, request.method(), toHttpHeaders(request.headers()),
+                        requestCapture != null ? requestCapture.toCapturedBody() : CapturedBody.notCaptured(requestLength), statusCode, responseHeaders, responseBody, durationNanos);
+            } finally {
+                setMdc(previous);
+            }
+        }
+    }
+
+    private static void setMdc(Map<String, String> context) {
+        if (context == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context);
+        }
+    }
+
+    /**
+     * Only what arrived before the body broke off is known, which is never the whole body.
+     */
+    private static CapturedBody brokenOff(CapturedBody capturedBody, long contentLength) {
+        return new CapturedBody(capturedBody.content(), contentLength >= 0 ? contentLength : CapturedBody.UNKNOWN_LENGTH, true);
+    }
+
+    private static HttpHeaders toHttpHeaders(java.net.http.HttpHeaders headers) {
+        return new HttpHeaders(CollectionUtils.toMultiValueMap(headers.map()));
+    }
+
+    private static class TeeBodyPublisher implements HttpRequest.BodyPublisher {
+        private final HttpRequest.BodyPublisher delegate;
+        private final CaptureBuffer captureBuffer;
+
+        private TeeBodyPublisher(HttpRequest.BodyPublisher delegate, CaptureBuffer captureBuffer) {
+            this.delegate = delegate;
+            this.captureBuffer = captureBuffer;
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            // Redirects and retries publish the body again, keep only the last attempt
+            captureBuffer.reset();
+            delegate.subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscriber.onSubscribe(subscription);
+                }
+
+                @Override
+                public void onNext(ByteBuffer item) {
+                    captureBuffer.write(item);
+                    subscriber.onNext(item);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    subscriber.onError(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    subscriber.onComplete();
+                }
+            });
+        }
+    }
+
+    private static class TeeBodySubscriber<T> implements HttpResponse.BodySubscriber<T> {
+        private final HttpResponse.BodySubscriber<T> delegate;
+        private final CaptureBuffer captureBuffer;
+        private final Runnable onComplete;
+        private final Consumer<Throwable> onError;
+
+        private TeeBodySubscriber(HttpResponse.BodySubscriber<T> delegate, CaptureBuffer captureBuffer, Runnable onComplete, Consumer<Throwable> onError) {
+            this.delegate = delegate;
+            this.captureBuffer = captureBuffer;
+            this.onComplete = onComplete;
+            this.onError = onError;
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            delegate.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            for (ByteBuffer item : items) {
+                captureBuffer.write(item);
+            }
+            delegate.onNext(items);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            try {
+                onError.accept(throwable);
+            } finally {
+                delegate.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            try {
+                onComplete.run();
+            } finally {
+                delegate.onComplete();
+            }
+        }
+    }
+}
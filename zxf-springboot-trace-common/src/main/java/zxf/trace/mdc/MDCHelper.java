@@ -1,18 +1,20 @@
 package zxf.trace.mdc;
 
-import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
 
-@Component
+import java.util.function.UnaryOperator;
+
 public class MDCHelper {
     @Autowired
     private MDCConfiguration mdcConfiguration;
 
-    public void inject(HttpServletRequest request) {
+    /**
+     * @param headerLookup resolves a request header by name, e.g. {@code request::getHeader}
+     */
+    public void inject(UnaryOperator<String> headerLookup) {
         if (mdcConfiguration.getEnable()) {
-            MDC.put(mdcConfiguration.getKey(), request.getHeader(mdcConfiguration.getHeader()));
+            MDC.put(mdcConfiguration.getKey(), headerLookup.apply(mdcConfiguration.getHeader()));
         }
     }
 
@@ -0,0 +1,58 @@
+package zxf.trace.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code /actuator/tracelatency}: latency percentiles of every traced route, in milliseconds.
+ * {@code /actuator/tracelatency/{direction}} narrows the table to inbound or outbound exchanges.
+ */
+@Endpoint(id = "tracelatency")
+public class TraceLatencyEndpoint {
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    @ReadOperation
+    public List<RouteLatency> latencies() {
+        return latenciesOf(null);
+    }
+
+    @ReadOperation
+    public List<RouteLatency> latenciesOf(@Selector @Nullable String direction) {
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        if (meterRegistry == null) {
+            return List.of();
+        }
+        return meterRegistry.find("trace.exchange").tag("direction", value -> direction == null || direction.equalsIgnoreCase(value)).timers().stream()
+                .map(this::toRouteLatency)
+                .sorted(Comparator.comparing(RouteLatency::direction).thenComparing(RouteLatency::route).thenComparing(RouteLatency::phase))
+                .toList();
+    }
+
+    private RouteLatency toRouteLatency(Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (ValueAtPercentile valueAtPercentile : snapshot.percentileValues()) {
+            percentiles.put(TraceMeter.percentileLabel(valueAtPercentile), valueAtPercentile.value(TimeUnit.MILLISECONDS));
+        }
+        return new RouteLatency(timer.getId().getTag("direction"), timer.getId().getTag("route"), timer.getId().getTag("phase"),
+                snapshot.count(), snapshot.mean(TimeUnit.MILLISECONDS), snapshot.max(TimeUnit.MILLISECONDS), percentiles);
+    }
+
+    public record RouteLatency(String direction, String route, String phase, long count, double meanMs, double maxMs, Map<String, Double> percentilesMs) {
+    }
+}
@@ -0,0 +1,184 @@
+package zxf.trace.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import zxf.trace.capture.CapturedBody;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency histograms and tracing cost meters of one direction and route. {@link #NOOP} is handed out when metrics are
+ * off: every method then returns immediately and {@link #start()} does not even read the clock.
+ */
+public final class TraceMeter {
+    public static final TraceMeter NOOP = new TraceMeter(null, null, null, null, null, null, null, null, null, null);
+
+    private static final ValueAtPercentile[] NO_PERCENTILES = new ValueAtPercentile[0];
+    private static final long PERCENTILES_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Timer responseStartTimer;
+    private final Timer completeTimer;
+
+    private final Timer captureTimer;
+    private final Timer maskTimer;
+    private final Timer renderTimer;
+    private final DistributionSummary capturedBytes;
+    private final DistributionSummary loggedBytes;
+    private final Counter truncatedBodies;
+    private final Counter skippedBodies;
+    private final Counter maskingFailures;
+    private volatile ValueAtPercentile[] percentiles;
+    private volatile long percentilesTakenNanos;
+
+    TraceMeter(Timer responseStartTimer, Timer completeTimer, Timer captureTimer, Timer maskTimer, Timer renderTimer, DistributionSummary capturedBytes, DistributionSummary loggedBytes,
+               Counter truncatedBodies, Counter skippedBodies, Counter maskingFailures) {
+        this.responseStartTimer = responseStartTimer;
+        this.completeTimer = completeTimer;
+        this.captureTimer = captureTimer;
+        this.maskTimer = maskTimer;
+        this.renderTimer = renderTimer;
+        this.capturedBytes = capturedBytes;
+        this.loggedBytes = loggedBytes;
+        this.truncatedBodies = truncatedBodies;
+        this.skippedBodies = skippedBodies;
+        this.maskingFailures = maskingFailures;
+    }
+
+    public boolean isEnabled() {
+        return this != NOOP;
+    }
+
+    /**
+     * @return the start of a timed phase, to be passed to {@link #captured(long)}, {@link #masked(long)} or {@link #rendered(long)}
+     */
+    public long start() {
+        return this == NOOP ? 0 : System.nanoTime();
+    }
+
+    /**
+     * From the start of the exchange until the response headers were received (outbound) or the
+     * response was committed (inbound).
+     */
+    public void responseStarted(long durationNanos) {
+        if (this != NOOP) {
+            responseStartTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * From the start of the exchange until the response body was complete.
+     */
+    public void completed(long durationNanos) {
+        if (this != NOOP) {
+            completeTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Recent percentiles of the complete latency of this route. Taking a histogram snapshot walks its
+     * buckets, so the snapshot is shared by all records rendered within the same second.
+     */
+    public ValueAtPercentile[] latencyPercentiles() {
+        if (this == NOOP) {
+            return NO_PERCENTILES;
+        }
+        long now = System.nanoTime();
+        if (percentiles == null || now - percentilesTakenNanos > PERCENTILES_REFRESH_NANOS) {
+            percentiles = completeTimer.takeSnapshot().percentileValues();
+            percentilesTakenNanos = now;
+        }
+        return percentiles;
+    }
+
+    /**
+     * The recent percentiles as {@code p50 8.1 ms, p95 12.0 ms, p99 30.4 ms}, empty when there are none.
+     */
+    public String latencySummary() {
+        ValueAtPercentile[] values = latencyPercentiles();
+        StringBuilder summary = new StringBuilder();
+        for (ValueAtPercentile value : values) {
+            if (!summary.isEmpty()) {
+                summary.append(", ");
+            }
+            summary.append(percentileLabel(value)).append(' ').append(percentileMillis(value)).append(" ms");
+        }
+        return summary.toString();
+    }
+
+    /**
+     * 0.5 -> p50, 0.999 -> p99.9
+     */
+    public static String percentileLabel(ValueAtPercentile valueAtPercentile) {
+        return "p" + BigDecimal.valueOf(valueAtPercentile.percentile()).movePointRight(2).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Percentile value in milliseconds, rounded to a tenth.
+     */
+    public static double percentileMillis(ValueAtPercentile valueAtPercentile) {
+        return Math.round(valueAtPercentile.value(TimeUnit.MILLISECONDS) * 10) / 10.0;
+    }
+
+    /**
+     * Snapshot of the exchange on the request thread: headers and captured bodies copied into the trace record.
+     */
+    public void captured(long startNanos) {
+        if (this != NOOP) {
+            captureTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void masked(long startNanos) {
+        if (this != NOOP) {
+            maskTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * The whole trace record turned into its log message, masking included.
+     */
+    public void rendered(long startNanos) {
+        if (this != NOOP) {
+            renderTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void body(CapturedBody body) {
+        if (this != NOOP && body != null) {
+            body(body.content().length, body.truncated());
+        }
+    }
+
+    public void body(long capturedLength, boolean truncated) {
+        if (this != NOOP) {
+            capturedBytes.record(capturedLength);
+            if (truncated) {
+                truncatedBodies.increment();
+            }
+        }
+    }
+
+    /**
+     * The exchange was not logged (sampled out or its logger disabled), so its bodies were not rendered.
+     */
+    public void skipped() {
+        if (this != NOOP) {
+            skippedBodies.increment();
+        }
+    }
+
+    public void logged(int messageLength) {
+        if (this != NOOP) {
+            loggedBytes.record(messageLength);
+        }
+    }
+
+    public void maskingFailed() {
+        if (this != NOOP) {
+            maskingFailures.increment();
+        }
+    }
+}
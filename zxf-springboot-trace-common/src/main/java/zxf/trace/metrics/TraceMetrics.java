@@ -0,0 +1,98 @@
+package zxf.trace.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import zxf.trace.record.TraceRecord;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out the {@link TraceMeter} of a direction and route. Meters are registered once per pair and
+ * then served from a map, so the per-exchange cost is one lookup; with {@code trace.metrics.enable}
+ * off, or no {@link MeterRegistry} in the context, it is a field read.
+ * <p>
+ * Published meters, all tagged {@code direction} and {@code route}:
+ * <ul>
+ *     <li>{@code trace.exchange} latency timer with percentiles, additionally tagged {@code phase}:
+ *     headers (outbound) or committed (inbound), and complete</li>
+ *     <li>{@code trace.overhead} timer, additionally tagged {@code phase}: capture, mask, render</li>
+ *     <li>{@code trace.body.captured} bytes kept of each body, {@code trace.logged} length of each trace message</li>
+ *     <li>{@code trace.body.truncated}, {@code trace.body.skipped} and {@code trace.masking.failures} counters</li>
+ * </ul>
+ */
+public class TraceMetrics {
+    /**
+     * Route of inbound exchanges no handler pattern matched (404s, static resources), so raw paths
+     * never become meter tags or sampler buckets.
+     */
+    public static final String UNMATCHED_ROUTE = "UNMATCHED";
+    private static final String OTHER_ROUTE = "OTHER";
+
+    @Autowired
+    private TraceMetricsConfiguration traceMetricsConfiguration;
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private final Map<MeterKey, TraceMeter> meters = new ConcurrentHashMap<>();
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        if (traceMetricsConfiguration.getEnable()) {
+            meterRegistry = meterRegistryProvider.getIfAvailable();
+        }
+    }
+
+    public TraceMeter meter(TraceRecord.Direction direction, String route) {
+        if (meterRegistry == null) {
+            return TraceMeter.NOOP;
+        }
+
+        MeterKey key = new MeterKey(direction, route == null ? OTHER_ROUTE : route);
+        TraceMeter meter = meters.get(key);
+        if (meter != null) {
+            return meter;
+        }
+        if (meters.size() >= traceMetricsConfiguration.getMaxRoutes()) {
+            key = new MeterKey(direction, OTHER_ROUTE);
+        }
+        return meters.computeIfAbsent(key, this::register);
+    }
+
+    private TraceMeter register(MeterKey key) {
+        Tags tags = Tags.of("direction", key.direction().name().toLowerCase(), "route", key.route());
+        return new TraceMeter(
+                exchangeTimer(key.direction() == TraceRecord.Direction.OUTBOUND ? "headers" : "committed", tags),
+                exchangeTimer("complete", tags),
+                overheadTimer("capture", tags),
+                overheadTimer("mask", tags),
+                overheadTimer("render", tags),
+                DistributionSummary.builder("trace.body.captured").baseUnit("bytes").description("Body bytes kept for logging").tags(tags).register(meterRegistry),
+                DistributionSummary.builder("trace.logged").baseUnit("bytes").description("Length of the rendered trace message").tags(tags).register(meterRegistry),
+                Counter.builder("trace.body.truncated").description("Bodies cut at the capture limit").tags(tags).register(meterRegistry),
+                Counter.builder("trace.body.skipped").description("Exchanges whose bodies were not logged, sampled out or logger disabled").tags(tags).register(meterRegistry),
+                Counter.builder("trace.masking.failures").description("Bodies which could not be masked").tags(tags).register(meterRegistry));
+    }
+
+    private Timer exchangeTimer(String phase, Tags tags) {
+        // Client side percentiles over a decaying HdrHistogram, no buckets are exported
+        return Timer.builder("trace.exchange").description("Latency of the traced exchange").tags(tags).tag("phase", phase)
+                .publishPercentiles(traceMetricsConfiguration.getPercentiles())
+                .distributionStatisticExpiry(traceMetricsConfiguration.getPercentileWindow())
+                .register(meterRegistry);
+    }
+
+    private Timer overheadTimer(String phase, Tags tags) {
+        return Timer.builder("trace.overhead").description("Time spent on tracing an exchange").tags(tags).tag("phase", phase).register(meterRegistry);
+    }
+
+    private record MeterKey(TraceRecord.Direction direction, String route) {
+    }
+}
@@ -0,0 +1,28 @@
+package zxf.trace.metrics;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+
+/**
+ * Micrometer metrics on the cost of tracing itself, exported through the application's meter registry.
+ */
+@Data
+@ConfigurationProperties(prefix = "trace.metrics")
+public class TraceMetricsConfiguration {
+    private Boolean enable = false;
+    /**
+     * Routes beyond this count are tagged {@code OTHER}, which bounds the number of time series.
+     */
+    private Integer maxRoutes = 100;
+    /**
+     * Percentiles of the exchange latency histograms, published as gauges and logged with each record.
+     */
+    private double[] percentiles = {0.5, 0.95, 0.99};
+    /**
+     * Latency percentiles cover roughly this sliding window.
+     */
+    private Duration percentileWindow = Duration.ofMinutes(1);
+}
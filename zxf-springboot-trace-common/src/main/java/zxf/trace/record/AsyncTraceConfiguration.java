@@ -0,0 +1,16 @@
+package zxf.trace.record;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+@Data
+@ConfigurationProperties(prefix = "trace.async")
+public class AsyncTraceConfiguration {
+    private Boolean enable = true;
+    private Integer queueCapacity = 8192;
+    /**
+     * Threads writing WebFlux traces, servlet traces are always written by the single dispatcher thread.
+     */
+    private Integer threads = 1;
+}
@@ -0,0 +1,66 @@
+package zxf.trace.record;
+
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The classic multi-line banner layout, emitted as one log event per exchange.
+ */
+public class BannerTraceRecordRenderer extends TraceRecordRenderer {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final String BANNER_RULE = "=================================================";
+
+    @Override
+    public void render(TraceRecord record, StringBuilder out) {
+        boolean inbound = record.getDirection() == TraceRecord.Direction.INBOUND;
+        String requestDirection = inbound ? "Inbound" : "Outbound";
+        String responseDirection = inbound ? "Outbound" : "Inbound";
+
+        appendBanner(out, "Request begin", requestDirection).append(LINE_SEPARATOR);
+        out.append("URL             : ").append(record.getUrl()).append(LINE_SEPARATOR);
+        out.append("Method          : ").append(record.getMethod()).append(LINE_SEPARATOR);
+        appendHeaders(out.append("Headers         : "), record.getRequestHeaders(), record).append(LINE_SEPARATOR);
+        out.append("Request Body    : ").append(readAndMaskJsonContent(record, record.getRequestContentType(), record.getRequestBody(), record.getRequestCharset())).append(LINE_SEPARATOR);
+        appendBanner(out, "Request end", requestDirection);
+
+        if (record.getStatusCode() != null) {
+            appendBanner(out.append(LINE_SEPARATOR), "Response begin", responseDirection).append(LINE_SEPARATOR);
+            out.append("Status code     : ").append(record.getStatusCode().intValue()).append(LINE_SEPARATOR);
+            appendHeaders(out.append("Headers         : "), record.getResponseHeaders(), record).append(LINE_SEPARATOR);
+            out.append("Response Body   : ").append(readAndMaskJsonContent(record, record.getResponseContentType(), record.getResponseBody(), record.getResponseCharset())).append(LINE_SEPARATOR);
+            out.append("Duration        : ").append(TimeUnit.NANOSECONDS.toMillis(record.getDurationNanos())).append(" ms").append(LINE_SEPARATOR);
+            String routeLatency = record.getMeter().latencySummary();
+            if (!routeLatency.isEmpty()) {
+                out.append("Route latency   : ").append(routeLatency).append(LINE_SEPARATOR);
+            }
+            appendBanner(out, "Response end", responseDirection);
+        }
+    }
+
+    private StringBuilder appendBanner(StringBuilder out, String title, String direction) {
+        return out.append(BANNER_RULE).append(title).append('(').append(direction).append(')').append(BANNER_RULE);
+    }
+
+    private StringBuilder appendHeaders(StringBuilder out, TraceHeaders headers, TraceRecord record) {
+        out.append('[');
+        int start = out.length();
+        headers.forEach((name, values) -> {
+            if (out.length() > start) {
+                out.append(", ");
+            }
+            out.append(name).append(":\"");
+            if (isSensitiveHeader(record, name)) {
+                out.append(MASKED_HEADER_VALUE);
+            } else {
+                for (int i = 0; i < values.size(); i++) {
+                    if (i > 0) {
+                        out.append(", ");
+                    }
+                    out.append(values.get(i));
+                }
+            }
+            out.append('"');
+        });
+        return out.append(']');
+    }
+}
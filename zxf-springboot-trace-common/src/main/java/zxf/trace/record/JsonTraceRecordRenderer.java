@@ -0,0 +1,101 @@
+package zxf.trace.record;
+
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import zxf.trace.metrics.TraceMeter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compact single-line JSON layout for log shippers. Bodies are embedded as JSON strings because a
+ * truncated or non-JSON body cannot be embedded as a JSON value.
+ */
+public class JsonTraceRecordRenderer extends TraceRecordRenderer {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    @Override
+    public void render(TraceRecord record, StringBuilder json) {
+        json.append("{\"direction\":\"").append(record.getDirection()).append('"');
+        json.append(",\"error\":").append(record.isError());
+        json.append(",\"url\":");
+        appendString(json, record.getUrl());
+        json.append(",\"method\":");
+        appendString(json, record.getMethod());
+        json.append(",\"requestHeaders\":");
+        appendHeaders(json, record.getRequestHeaders(), record);
+        json.append(",\"requestBody\":");
+        appendString(json, readAndMaskJsonContent(record, record.getRequestContentType(), record.getRequestBody(), record.getRequestCharset()));
+        if (record.getStatusCode() != null) {
+            json.append(",\"status\":").append(record.getStatusCode());
+            json.append(",\"responseHeaders\":");
+            appendHeaders(json, record.getResponseHeaders(), record);
+            json.append(",\"responseBody\":");
+            appendString(json, readAndMaskJsonContent(record, record.getResponseContentType(), record.getResponseBody(), record.getResponseCharset()));
+        }
+        json.append(",\"durationMs\":").append(TimeUnit.NANOSECONDS.toMillis(record.getDurationNanos()));
+        ValueAtPercentile[] percentiles = record.getMeter().latencyPercentiles();
+        if (percentiles.length > 0) {
+            json.append(",\"routeLatencyMs\":{");
+            for (int i = 0; i < percentiles.length; i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append('"').append(TraceMeter.percentileLabel(percentiles[i])).append("\":").append(TraceMeter.percentileMillis(percentiles[i]));
+            }
+            json.append('}');
+        }
+        json.append('}');
+    }
+
+    private void appendHeaders(StringBuilder json, TraceHeaders headers, TraceRecord record) {
+        json.append('{');
+        int start = json.length();
+        headers.forEach((name, values) -> {
+            if (json.length() > start) {
+                json.append(',');
+            }
+            appendString(json, name);
+            json.append(':');
+            if (isSensitiveHeader(record, name)) {
+                appendString(json, MASKED_HEADER_VALUE);
+            } else if (values.size() == 1) {
+                appendString(json, values.get(0));
+            } else {
+                json.append('[');
+                for (int i = 0; i < values.size(); i++) {
+                    if (i > 0) {
+                        json.append(',');
+                    }
+                    appendString(json, values.get(i));
+                }
+                json.append(']');
+            }
+        });
+        json.append('}');
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,48 @@
+package zxf.trace.record;
+
+import org.springframework.http.HttpHeaders;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Read-only headers of a traced message, with every value of every header. Client side
+ * {@link HttpHeaders} are referenced as they are; servlet headers, which the container recycles
+ * with the request, are snapshot once on the request thread.
+ */
+public final class TraceHeaders {
+    public static final TraceHeaders EMPTY = new TraceHeaders(Collections.emptyMap());
+
+    private final Map<String, List<String>> headers;
+
+    private TraceHeaders(Map<String, List<String>> headers) {
+        this.headers = headers;
+    }
+
+    public static TraceHeaders of(HttpHeaders headers) {
+        if (headers == null || headers.isEmpty()) {
+            return EMPTY;
+        }
+        return new TraceHeaders(HttpHeaders.readOnlyHttpHeaders(headers));
+    }
+
+    public static TraceHeaders of(Collection<String> headerNames, Function<String, List<String>> headerValuesProvider) {
+        if (headerNames.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, List<String>> headers = new LinkedHashMap<>(headerNames.size() * 2);
+        for (String headerName : headerNames) {
+            headers.put(headerName, headerValuesProvider.apply(headerName));
+        }
+        return new TraceHeaders(headers);
+    }
+
+    public void forEach(BiConsumer<String, List<String>> action) {
+        headers.forEach(action);
+    }
+}
@@ -0,0 +1,20 @@
+package zxf.trace.record;
+
+/**
+ * Deferred log message argument: the record is masked and rendered only when the logging backend
+ * formats the event for an appender, never for events that are filtered out before that.
+ */
+final class TraceMessage {
+    private final TraceRecord record;
+    private final TraceRecordRenderer renderer;
+
+    TraceMessage(TraceRecord record, TraceRecordRenderer renderer) {
+        this.record = record;
+        this.renderer = renderer;
+    }
+
+    @Override
+    public String toString() {
+        return renderer.render(record);
+    }
+}
@@ -0,0 +1,57 @@
+package zxf.trace.record;
+
+import lombok.Builder;
+import lombok.Value;
+import org.slf4j.Logger;
+import zxf.trace.capture.CapturedBody;
+import zxf.trace.metrics.TraceMeter;
+import zxf.trace.route.RoutePolicy;
+
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * Everything needed to log one exchange, captured on the request thread. Masking and formatting
+ * happen later, off the request thread, in {@link TraceRecordWriter}.
+ */
+@Value
+@Builder
+public class TraceRecord {
+    Logger logger;
+    Direction direction;
+    boolean error;
+    String url;
+    String method;
+    TraceHeaders requestHeaders;
+    String requestContentType;
+    Charset requestCharset;
+    CapturedBody requestBody;
+    /**
+     * {@code null} when no response was received.
+     */
+    Integer statusCode;
+    TraceHeaders responseHeaders;
+    String responseContentType;
+    Charset responseCharset;
+    CapturedBody responseBody;
+    /**
+     * From the start of the exchange until the response was complete (inbound) or received (outbound).
+     */
+    long durationNanos;
+    Map<String, String> mdcContext;
+    long createdNanos;
+    /**
+     * Meters of the route of the exchange: the rendering cost is recorded into it and its latency percentiles are logged.
+     */
+    @Builder.Default
+    TraceMeter meter = TraceMeter.NOOP;
+    /**
+     * Policy of the route of the exchange: its extra masked names and the level successful exchanges are logged at.
+     */
+    @Builder.Default
+    RoutePolicy routePolicy = RoutePolicy.DEFAULT;
+
+    public enum Direction {
+        INBOUND, OUTBOUND
+    }
+}
@@ -0,0 +1,164 @@
+package zxf.trace.record;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands {@link TraceRecord}s from request threads to a single consumer thread which masks, formats
+ * and appends them. The queue is lock-free and bounded: when it is full, successful exchanges are
+ * dropped and counted, while error exchanges are written on the calling thread so they are never lost.
+ */
+@Slf4j
+@ManagedResource(objectName = "zxf.trace:name=TraceRecordDispatcher", description = "Asynchronous trace record pipeline")
+public class TraceRecordDispatcher {
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Autowired
+    private AsyncTraceConfiguration asyncTraceConfiguration;
+    @Autowired
+    private TraceRecordWriter traceRecordWriter;
+
+    private final Queue<TraceRecord> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicBoolean consumerParked = new AtomicBoolean();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder inlineWrittenCount = new LongAdder();
+    private volatile long writtenCount;
+    private volatile long lastLagNanos;
+    private volatile long maxLagNanos;
+    private volatile boolean running;
+    private int queueCapacity;
+    private Thread consumer;
+
+    @PostConstruct
+    public void start() {
+        if (!asyncTraceConfiguration.getEnable()) {
+            return;
+        }
+
+        queueCapacity = asyncTraceConfiguration.getQueueCapacity();
+        running = true;
+        consumer = new Thread(this::consume, "trace-dispatcher");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public void dispatch(TraceRecord record) {
+        if (!running) {
+            traceRecordWriter.write(record);
+            return;
+        }
+
+        if (queueDepth.incrementAndGet() > queueCapacity) {
+            queueDepth.decrementAndGet();
+            if (record.isError()) {
+                inlineWrittenCount.increment();
+                traceRecordWriter.write(record);
+            } else {
+                droppedCount.increment();
+            }
+            return;
+        }
+
+        queue.offer(record);
+        if (consumerParked.get() && consumerParked.compareAndSet(true, false)) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private void consume() {
+        while (running || !queue.isEmpty()) {
+            TraceRecord record = queue.poll();
+            if (record == null) {
+                consumerParked.set(true);
+                if (running && queue.isEmpty()) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                consumerParked.set(false);
+                continue;
+            }
+
+            queueDepth.decrementAndGet();
+            write(record);
+        }
+    }
+
+    private void write(TraceRecord record) {
+        try {
+            Map<String, String> mdcContext = record.getMdcContext();
+            if (mdcContext != null) {
+                MDC.setContextMap(mdcContext);
+            }
+            traceRecordWriter.write(record);
+        } catch (Throwable ex) {
+            log.error("Exception when write trace record", ex);
+        } finally {
+            MDC.clear();
+        }
+
+        long lagNanos = System.nanoTime() - record.getCreatedNanos();
+        lastLagNanos = lagNanos;
+        if (lagNanos > maxLagNanos) {
+            maxLagNanos = lagNanos;
+        }
+        writtenCount++;
+    }
+
+    @ManagedAttribute(description = "Trace records waiting to be written")
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @ManagedAttribute(description = "Maximum number of queued trace records")
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @ManagedAttribute(description = "Successful exchanges dropped because the queue was full")
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    @ManagedAttribute(description = "Error exchanges written on the request thread because the queue was full")
+    public long getInlineWrittenCount() {
+        return inlineWrittenCount.sum();
+    }
+
+    @ManagedAttribute(description = "Trace records written by the consumer thread")
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    @ManagedAttribute(description = "Time from capture to written for the last record, in milliseconds")
+    public double getLastLagMillis() {
+        return lastLagNanos / 1_000_000.0;
+    }
+
+    @ManagedAttribute(description = "Highest time from capture to written seen so far, in milliseconds")
+    public double getMaxLagMillis() {
+        return maxLagNanos / 1_000_000.0;
+    }
+}
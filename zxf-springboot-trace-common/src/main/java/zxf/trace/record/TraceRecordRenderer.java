@@ -0,0 +1,89 @@
+package zxf.trace.record;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import zxf.trace.capture.CapturedBody;
+import zxf.trace.metrics.TraceMeter;
+import zxf.trace.sensitive.SensitiveDataHelper;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Renders a whole {@link TraceRecord} into the message of a single log event, applying header and
+ * JSON body masking on the way. Rendering appends into a caller supplied buffer so it can be reused.
+ */
+@Slf4j
+public abstract class TraceRecordRenderer {
+    protected static final String MASKED_HEADER_VALUE = "******";
+
+    private static final int MAX_RETAINED_BUFFER_CHARS = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> RENDER_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    @Autowired
+    private SensitiveDataHelper sensitiveDataHelper;
+
+    public abstract void render(TraceRecord record, StringBuilder out);
+
+    /**
+     * Renders through a per-thread buffer, so only the resulting message is allocated.
+     */
+    public String render(TraceRecord record) {
+        TraceMeter meter = record.getMeter();
+        long startNanos = meter.start();
+        StringBuilder buffer = RENDER_BUFFER.get();
+        buffer.setLength(0);
+        try {
+            render(record, buffer);
+            String message = buffer.toString();
+            meter.rendered(startNanos);
+            meter.logged(message.length());
+            return message;
+        } finally {
+            if (buffer.capacity() > MAX_RETAINED_BUFFER_CHARS) {
+                // Do not pin the buffer of one huge body to the thread forever
+                RENDER_BUFFER.remove();
+            }
+        }
+    }
+
+    protected boolean isSensitiveHeader(TraceRecord record, String headerName) {
+        return sensitiveDataHelper.isSensitiveHeader(headerName, record.getRoutePolicy().maskHeaders());
+    }
+
+    protected String readAndMaskJsonContent(TraceRecord record, String contentType, CapturedBody capturedBody, Charset charset) {
+        if (capturedBody == null) {
+            return "";
+        }
+        String content = readAndMaskJsonContent(record.getMeter(), record.getRoutePolicy().maskJsonNames(), contentType, capturedBody.content(), charset);
+        return capturedBody.truncated() ? content + capturedBody.truncationMarker() : content;
+    }
+
+    private String readAndMaskJsonContent(TraceMeter meter, String[] extraJsonNames, String contentType, byte[] contentBytes, Charset charset) {
+        try {
+            if (charset == null) {
+                charset = StandardCharsets.UTF_8;
+            }
+            if (ArrayUtils.isEmpty(contentBytes)) {
+                return "";
+            }
+            if (!StringUtils.containsIgnoreCase(contentType, "json")) {
+                return new String(contentBytes, charset);
+            }
+            if (!StandardCharsets.UTF_8.equals(charset) && !StandardCharsets.US_ASCII.equals(charset)) {
+                // The masker works on UTF-8 only, transcode the rare non UTF-8 JSON body first
+                contentBytes = new String(contentBytes, charset).getBytes(StandardCharsets.UTF_8);
+            }
+            long startNanos = meter.start();
+            byte[] maskedBytes = sensitiveDataHelper.maskSensitiveDataFromJson(contentBytes, extraJsonNames);
+            meter.masked(startNanos);
+            return new String(maskedBytes, StandardCharsets.UTF_8);
+        } catch (Exception ex) {
+            log.error("Exception when read content", ex);
+            meter.maskingFailed();
+            return "Content read error";
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package zxf.trace.record;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Writes a {@link TraceRecord} as a single log event through the logger of the component that
+ * produced it, in the layout selected by {@code trace.render.format}.
+ */
+@Slf4j
+public class TraceRecordWriter {
+    @Autowired
+    private TraceRenderConfiguration traceRenderConfiguration;
+    @Autowired
+    private BannerTraceRecordRenderer bannerTraceRecordRenderer;
+    @Autowired
+    private JsonTraceRecordRenderer jsonTraceRecordRenderer;
+
+    public void write(TraceRecord record) {
+        try {
+            TraceRecordRenderer renderer = traceRenderConfiguration.getFormat() == TraceRenderConfiguration.Format.JSON
+                    ? jsonTraceRecordRenderer : bannerTraceRecordRenderer;
+            TraceMessage message = new TraceMessage(record, renderer);
+            record.getLogger().atLevel(record.getRoutePolicy().level(record.isError())).log("{}", message);
+        } catch (Exception ex) {
+            log.error("Exception when log request and response", ex);
+        }
+    }
+}
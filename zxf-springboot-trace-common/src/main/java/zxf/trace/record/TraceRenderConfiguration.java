@@ -0,0 +1,15 @@
+package zxf.trace.record;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+@Data
+@ConfigurationProperties(prefix = "trace.render")
+public class TraceRenderConfiguration {
+    private Format format = Format.BANNER;
+
+    public enum Format {
+        BANNER, JSON
+    }
+}
@@ -0,0 +1,50 @@
+package zxf.trace.route;
+
+import lombok.Data;
+import org.slf4j.event.Level;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import zxf.trace.record.TraceRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Per-route overrides of how exchanges are traced. Routes are matched in order, the first route with
+ * a matching path pattern wins; exchanges matching no route are traced with the global settings.
+ */
+@Data
+@ConfigurationProperties(prefix = "trace")
+public class RouteConfiguration {
+    private List<Route> routes = new ArrayList<>();
+
+    @Data
+    public static class Route {
+        /**
+         * {@link org.springframework.web.util.pattern.PathPattern} syntax, matched against the path
+         * within the application (inbound) or the request URL path (outbound).
+         */
+        private List<String> patterns = new ArrayList<>();
+        /**
+         * Only inbound or only outbound exchanges, both when not set.
+         */
+        private TraceRecord.Direction direction;
+        private RoutePolicy.CaptureMode capture = RoutePolicy.CaptureMode.DEFAULT;
+        /**
+         * JSON field names masked on top of trace.sensitive-mask.json-names.
+         */
+        private String[] maskJsonNames;
+        /**
+         * Headers masked on top of trace.sensitive-mask.headers.
+         */
+        private String[] maskHeaders;
+        /**
+         * Fraction of successful exchanges logged, replacing trace.sampling for this route when set.
+         */
+        private Double sampleRatio;
+        /**
+         * Level successful exchanges are logged at, errors are always logged at ERROR.
+         */
+        private Level level = Level.INFO;
+    }
+}
@@ -0,0 +1,50 @@
+package zxf.trace.route;
+
+import org.slf4j.event.Level;
+
+/**
+ * How the exchanges of one route are traced, compiled from a {@link RouteConfiguration.Route}.
+ * Immutable and shared by all threads.
+ *
+ * @param pattern       the matching pattern, {@code null} for {@link #DEFAULT}
+ * @param maskJsonNames extra JSON field names to mask, {@code null} for none
+ * @param maskHeaders   extra headers to mask, {@code null} for none
+ * @param sampleRatio   replaces the sampler for this route, {@code null} to use the sampler
+ */
+public record RoutePolicy(String pattern, CaptureMode capture, String[] maskJsonNames, String[] maskHeaders, Double sampleRatio, Level level) {
+    /**
+     * Exchanges matching no route: the global capture, masking and sampling settings apply.
+     */
+    public static final RoutePolicy DEFAULT = new RoutePolicy(null, CaptureMode.DEFAULT, null, null, null, Level.INFO);
+
+    public boolean isTraced() {
+        return capture != CaptureMode.IGNORE;
+    }
+
+    public Level level(boolean error) {
+        return error ? Level.ERROR : level;
+    }
+
+    public enum CaptureMode {
+        /**
+         * Bodies are captured as the content type policy decides.
+         */
+        DEFAULT,
+        /**
+         * Bodies of any type are captured up to max-body-bytes.
+         */
+        FULL,
+        /**
+         * Only the first head-bytes of bodies of any type are captured.
+         */
+        HEAD,
+        /**
+         * Exchanges are logged without bodies, which are not wrapped at all.
+         */
+        METADATA,
+        /**
+         * Exchanges are neither wrapped, metered nor logged.
+         */
+        IGNORE
+    }
+}
@@ -0,0 +1,140 @@
+package zxf.trace.route;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.commons.lang3.ArrayUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.server.PathContainer;
+import org.springframework.lang.Nullable;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import zxf.trace.record.TraceRecord;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the {@link RoutePolicy} of an exchange from its path, before anything is wrapped.
+ * <p>
+ * Patterns are parsed once at startup. Literal patterns are resolved up front and kept for good;
+ * other paths are cached in a bounded concurrent map, so steady traffic costs one lock-free lookup
+ * per exchange. Once the cache is full every new path evicts an arbitrary one: paths with ids in them
+ * only evict each other instead of filling the cache for good, and a hot path evicted by chance is
+ * matched again on its next exchange.
+ */
+public class RoutePolicyResolver {
+    private static final int MAX_CACHED_PATHS = 1024;
+
+    @Autowired
+    private RouteConfiguration routeConfiguration;
+
+    private CompiledRoutes inboundRoutes;
+    private CompiledRoutes outboundRoutes;
+
+    @PostConstruct
+    public void init() {
+        inboundRoutes = compile(TraceRecord.Direction.INBOUND);
+        outboundRoutes = compile(TraceRecord.Direction.OUTBOUND);
+    }
+
+    /**
+     * @param path the request path within the application
+     */
+    public RoutePolicy inbound(@Nullable String path) {
+        return inboundRoutes.resolve(path);
+    }
+
+    /**
+     * @param path the path of the request URL
+     */
+    public RoutePolicy outbound(@Nullable String path) {
+        return outboundRoutes.resolve(path);
+    }
+
+    int cachedInboundPaths() {
+        return inboundRoutes.resolvedPaths.size();
+    }
+
+    private CompiledRoutes compile(TraceRecord.Direction direction) {
+        PathPatternParser parser = new PathPatternParser();
+        List<CompiledRoute> routes = new ArrayList<>();
+        for (RouteConfiguration.Route route : routeConfiguration.getRoutes()) {
+            if (route.getDirection() != null && route.getDirection() != direction) {
+                continue;
+            }
+            for (String pattern : route.getPatterns()) {
+                RoutePolicy routePolicy = new RoutePolicy(pattern, route.getCapture(), emptyToNull(route.getMaskJsonNames()),
+                        emptyToNull(route.getMaskHeaders()), route.getSampleRatio(), route.getLevel());
+                routes.add(new CompiledRoute(parser.parse(pattern), routePolicy));
+            }
+        }
+
+        return new CompiledRoutes(routes);
+    }
+
+    private static String[] emptyToNull(String[] names) {
+        return ArrayUtils.isEmpty(names) ? null : names;
+    }
+
+    private record CompiledRoute(PathPattern pattern, RoutePolicy routePolicy) {
+    }
+
+    private static class CompiledRoutes {
+        private final List<CompiledRoute> routes;
+        private final Map<String, RoutePolicy> literalPaths;
+        private final Map<String, RoutePolicy> resolvedPaths = new ConcurrentHashMap<>();
+
+        private CompiledRoutes(List<CompiledRoute> routes) {
+            this.routes = routes;
+            Map<String, RoutePolicy> literalPaths = new HashMap<>();
+            for (CompiledRoute route : routes) {
+                if (!route.pattern().hasPatternSyntax()) {
+                    // Earlier patterns may shadow a literal one, so resolve it like any other path
+                    literalPaths.putIfAbsent(route.pattern().getPatternString(), match(route.pattern().getPatternString()));
+                }
+            }
+            this.literalPaths = Map.copyOf(literalPaths);
+        }
+
+        private RoutePolicy resolve(@Nullable String path) {
+            if (routes.isEmpty() || path == null) {
+                return RoutePolicy.DEFAULT;
+            }
+            RoutePolicy routePolicy = literalPaths.get(path);
+            if (routePolicy == null) {
+                routePolicy = resolvedPaths.get(path);
+            }
+            if (routePolicy == null) {
+                routePolicy = match(path);
+                evictBeyondBound();
+                resolvedPaths.put(path, routePolicy);
+            }
+            return routePolicy;
+        }
+
+        /**
+         * Racing misses may evict the same path, so evicts until there is room again rather than once:
+         * the cache then never outgrows its bound by more than the threads resolving at once.
+         */
+        private void evictBeyondBound() {
+            Iterator<String> paths = resolvedPaths.keySet().iterator();
+            while (resolvedPaths.size() >= MAX_CACHED_PATHS && paths.hasNext()) {
+                paths.next();
+                paths.remove();
+            }
+        }
+
+        private RoutePolicy match(String path) {
+            PathContainer pathContainer = PathContainer.parsePath(path);
+            for (CompiledRoute route : routes) {
+                if (route.pattern().matches(pathContainer)) {
+                    return route.routePolicy();
+                }
+            }
+            return RoutePolicy.DEFAULT;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package zxf.trace.sampling;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+
+/**
+ * Sampling of successful exchanges. Error exchanges are never sampled away.
+ */
+@Data
+@ConfigurationProperties(prefix = "trace.sampling")
+public class SamplingConfiguration {
+    private Boolean enable = false;
+    /**
+     * Fraction of successful exchanges to log, between 0 and 1.
+     */
+    private Double ratio = 1.0;
+    /**
+     * Successful exchanges logged per second for each route, unlimited when not set.
+     */
+    private Double routePermitsPerSecond;
+    private Integer routeBurst = 10;
+    /**
+     * Successful exchanges logged per second over all routes, unlimited when not set.
+     */
+    private Double maxPermitsPerSecond;
+    private Integer maxBurst = 100;
+    /**
+     * Routes beyond this count share one bucket, which bounds the memory held by per-route buckets.
+     */
+    private Integer maxRoutes = 1000;
+}
@@ -0,0 +1,33 @@
+package zxf.trace.sampling;
+
+import zxf.trace.route.RoutePolicy;
+
+import java.util.function.Supplier;
+
+/**
+ * Sampling decision of one exchange, taken lazily the first time it is needed (when the status is
+ * known, e.g. on the first response write) and then kept, so capture and logging always agree.
+ * Used by one exchange at a time; volatile since reactive exchanges move between threads, racing
+ * first calls would at worst both sample.
+ */
+public class SamplingDecision {
+    private final TraceSampler traceSampler;
+    private final Supplier<String> routeSupplier;
+    private final RoutePolicy routePolicy;
+    private volatile Boolean sampled;
+
+    SamplingDecision(TraceSampler traceSampler, Supplier<String> routeSupplier, RoutePolicy routePolicy) {
+        this.traceSampler = traceSampler;
+        this.routeSupplier = routeSupplier;
+        this.routePolicy = routePolicy;
+    }
+
+    public boolean isSampled() {
+        Boolean sampled = this.sampled;
+        if (sampled == null) {
+            sampled = traceSampler.sample(routeSupplier.get(), routePolicy);
+            this.sampled = sampled;
+        }
+        return sampled;
+    }
+}
@@ -0,0 +1,20 @@
+package zxf.trace.sampling;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+
+/**
+ * Tail-based sampling: the outbound records of an inbound request are held back until the inbound
+ * exchange ends, then logged together only when some hop failed or was slow.
+ */
+@Data
+@ConfigurationProperties(prefix = "trace.tail-sampling")
+public class TailSamplingConfiguration {
+    private Boolean enable = false;
+    private Duration slowThreshold = Duration.ofSeconds(1);
+    private Integer maxRecordsPerGroup = 64;
+    private Integer maxGroups = 10000;
+}
@@ -0,0 +1,33 @@
+package zxf.trace.sampling;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free rate limiter using the generic cell rate algorithm: a single atomic "theoretical
+ * arrival time" replaces the token count and refill timestamp of a classic token bucket.
+ */
+public class TokenBucket {
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrivalNanos = new AtomicLong(Long.MIN_VALUE);
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.toleranceNanos = emissionIntervalNanos * (Math.max(burst, 1) - 1);
+    }
+
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long tat = theoreticalArrivalNanos.get();
+            long start = tat == Long.MIN_VALUE || tat - now < 0 ? now : tat;
+            if (start - now > toleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(tat, start + emissionIntervalNanos)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package zxf.trace.sampling;
+
+import zxf.trace.record.TraceRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The outbound trace records of one inbound request, identified by a token of its own. Outbound
+ * calls may run on other threads, so adding and closing are guarded by a lock: a record either
+ * makes it into the group before it is closed, or is refused and logged by its caller.
+ */
+public class TraceGroup {
+    private final String id;
+    private final int maxRecords;
+    // A ReentrantLock rather than a monitor, so virtual threads are never pinned while waiting
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<TraceRecord> records = new ArrayList<>();
+    private volatile boolean failed;
+    private boolean closed;
+
+    TraceGroup(String id, int maxRecords) {
+        this.id = id;
+        this.maxRecords = maxRecords;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    /**
+     * @return {@code false} when the group is full or already closed, the caller then logs the record itself
+     */
+    boolean add(TraceRecord record, boolean slow) {
+        lock.lock();
+        try {
+            if (closed || records.size() >= maxRecords) {
+                return false;
+            }
+            records.add(record);
+            if (record.isError() || slow) {
+                failed = true;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    List<TraceRecord> close() {
+        lock.lock();
+        try {
+            closed = true;
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return whether any buffered hop errored or was slow
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,103 @@
+package zxf.trace.sampling;
+
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import zxf.trace.record.TraceRecord;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the outbound records of in-flight inbound requests for tail-based sampling. Groups are
+ * opened and closed by the inbound filter around the request, so nothing outlives its request.
+ * <p>
+ * A group is keyed by a token generated here, never by the client's request id: two requests
+ * sending the same X-Request-Id still get groups of their own. The token travels in the MDC under
+ * {@link #GROUP_KEY}, so outbound calls find the group of their request on any thread the MDC is
+ * carried to.
+ */
+public class TraceGroupBuffer {
+    public static final String GROUP_KEY = "TraceGroup";
+
+    @Autowired
+    private TailSamplingConfiguration tailSamplingConfiguration;
+
+    private final Map<String, TraceGroup> groups = new ConcurrentHashMap<>();
+    private final AtomicLong groupSequence = new AtomicLong();
+
+    public boolean isEnabled() {
+        return tailSamplingConfiguration.getEnable();
+    }
+
+    /**
+     * Opens a group for the current request and binds it to this thread, or returns {@code null}
+     * when tail sampling is off or too many groups are open.
+     */
+    public TraceGroup open() {
+        if (!tailSamplingConfiguration.getEnable() || groups.size() >= tailSamplingConfiguration.getMaxGroups()) {
+            return null;
+        }
+        TraceGroup group = new TraceGroup(Long.toString(groupSequence.incrementAndGet()), tailSamplingConfiguration.getMaxRecordsPerGroup());
+        groups.put(group.getId(), group);
+        bind(group);
+        return group;
+    }
+
+    /**
+     * Binds an open group to this thread again, e.g. on an async dispatch of its request.
+     */
+    public void bind(@Nullable TraceGroup group) {
+        if (group != null) {
+            MDC.put(GROUP_KEY, group.getId());
+        }
+    }
+
+    /**
+     * Unbinds the group from this thread, it stays open until {@link #close(TraceGroup)}.
+     */
+    public void unbind() {
+        MDC.remove(GROUP_KEY);
+    }
+
+    /**
+     * @return whether records produced on this thread now would be buffered in an open group
+     */
+    public boolean isGroupOpen() {
+        String id = currentId();
+        return id != null && groups.containsKey(id);
+    }
+
+    /**
+     * Buffers an outbound record in the group of the current request.
+     *
+     * @return {@code false} when there is no open group, or it is full or closed meanwhile; the caller logs the record itself
+     */
+    public boolean offer(TraceRecord record) {
+        String id = currentId();
+        TraceGroup group = id == null ? null : groups.get(id);
+        return group != null && group.add(record, isSlow(record.getDurationNanos()));
+    }
+
+    /**
+     * Closes the group, after which no more records are accepted, and returns its buffered records.
+     */
+    public List<TraceRecord> close(TraceGroup group) {
+        if (group == null) {
+            return Collections.emptyList();
+        }
+        groups.remove(group.getId(), group);
+        return group.close();
+    }
+
+    public boolean isSlow(long durationNanos) {
+        return durationNanos > tailSamplingConfiguration.getSlowThreshold().toNanos();
+    }
+
+    private String currentId() {
+        return tailSamplingConfiguration.getEnable() ? MDC.get(GROUP_KEY) : null;
+    }
+}
@@ -0,0 +1,77 @@
+package zxf.trace.sampling;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import zxf.trace.route.RoutePolicy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Decides whether a successful exchange is logged: a fixed ratio, then a per-route token bucket,
+ * then a global cap. Errors bypass the sampler entirely, so callers ask only once the status is known.
+ */
+public class TraceSampler {
+    private static final String OVERFLOW_ROUTE = "*";
+
+    @Autowired
+    private SamplingConfiguration samplingConfiguration;
+
+    private final Map<String, TokenBucket> routeBuckets = new ConcurrentHashMap<>();
+    private volatile TokenBucket globalBucket;
+
+    public boolean isEnabled() {
+        return samplingConfiguration.getEnable();
+    }
+
+    public SamplingDecision decide(Supplier<String> routeSupplier, RoutePolicy routePolicy) {
+        return new SamplingDecision(this, routeSupplier, routePolicy);
+    }
+
+    /**
+     * A route's own sample ratio replaces ratio, buckets and cap, whether sampling is enabled or not.
+     */
+    public boolean sample(String route, RoutePolicy routePolicy) {
+        Double sampleRatio = routePolicy.sampleRatio();
+        if (sampleRatio == null) {
+            return sample(route);
+        }
+        return sampleRatio >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRatio;
+    }
+
+    public boolean sample(String route) {
+        if (!samplingConfiguration.getEnable()) {
+            return true;
+        }
+
+        double ratio = samplingConfiguration.getRatio();
+        if (ratio < 1.0 && ThreadLocalRandom.current().nextDouble() >= ratio) {
+            return false;
+        }
+
+        if (samplingConfiguration.getRoutePermitsPerSecond() != null && !routeBucket(route).tryAcquire()) {
+            return false;
+        }
+
+        return samplingConfiguration.getMaxPermitsPerSecond() == null || globalBucket().tryAcquire();
+    }
+
+    private TokenBucket routeBucket(String route) {
+        TokenBucket bucket = routeBuckets.get(route);
+        if (bucket != null) {
+            return bucket;
+        }
+        String key = routeBuckets.size() < samplingConfiguration.getMaxRoutes() ? route : OVERFLOW_ROUTE;
+        return routeBuckets.computeIfAbsent(key, k -> new TokenBucket(samplingConfiguration.getRoutePermitsPerSecond(), samplingConfiguration.getRouteBurst()));
+    }
+
+    private TokenBucket globalBucket() {
+        TokenBucket bucket = globalBucket;
+        if (bucket == null) {
+            bucket = new TokenBucket(samplingConfiguration.getMaxPermitsPerSecond(), samplingConfiguration.getMaxBurst());
+            globalBucket = bucket;
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,52 @@
+package zxf.trace.sensitive;
+
+import java.util.Locale;
+
+/**
+ * Immutable open-addressing hash set of ASCII names with case-insensitive lookup. The hash is
+ * computed over the lower-cased characters in place, so a lookup neither allocates nor scans.
+ */
+final class CaseInsensitiveNameSet {
+    private final String[] table;
+    private final int mask;
+
+    CaseInsensitiveNameSet(String[] names) {
+        int capacity = Integer.highestOneBit(Math.max(4, names == null ? 0 : names.length * 4) - 1) << 1;
+        this.table = new String[capacity];
+        this.mask = capacity - 1;
+        if (names != null) {
+            for (String name : names) {
+                add(name.toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    boolean contains(String name) {
+        for (int i = hash(name) & mask; table[i] != null; i = (i + 1) & mask) {
+            if (table[i].length() == name.length() && table[i].regionMatches(true, 0, name, 0, name.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(String name) {
+        int i = hash(name) & mask;
+        while (table[i] != null) {
+            if (table[i].equals(name)) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = name;
+    }
+
+    private static int hash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            h = 31 * h + (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+        }
+        return h ^ (h >>> 16);
+    }
+}
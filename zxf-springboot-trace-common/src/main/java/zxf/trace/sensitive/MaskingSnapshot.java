@@ -0,0 +1,40 @@
+package zxf.trace.sensitive;
+
+import dev.blaauwendraad.masker.json.JsonMasker;
+import org.apache.commons.lang3.ArrayUtils;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable, compiled view of {@link SensitiveConfiguration}, shared by all threads.
+ * The source arrays are kept by reference so a re-bound configuration can be detected cheaply.
+ * <p>
+ * Snapshots of routes with extra names are compiled on top of this one and kept inside it, so a
+ * re-bound configuration replaces them together with the global snapshot.
+ */
+record MaskingSnapshot(String[] jsonNames, JsonMasker jsonMasker, String[] headers, CaseInsensitiveNameSet sensitiveHeaders,
+                       Map<String[], MaskingSnapshot> routeSnapshots) {
+
+    static MaskingSnapshot compile(String[] jsonNames, String[] headers) {
+        // Route names may repeat global ones, which Set.of would reject
+        JsonMasker jsonMasker = ArrayUtils.isEmpty(jsonNames) ? null : JsonMasker.getMasker(new LinkedHashSet<>(Arrays.asList(jsonNames)));
+        // Keyed by the identity of a route's extra names, so each route compiles its masking once
+        return new MaskingSnapshot(jsonNames, jsonMasker, headers, new CaseInsensitiveNameSet(headers), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @param extraNames the route's JSON names or headers, always the same array instance for the same route
+     */
+    MaskingSnapshot forRoute(String[] extraNames, boolean jsonNames) {
+        return routeSnapshots.computeIfAbsent(extraNames, names -> jsonNames
+                ? compile(ArrayUtils.addAll(this.jsonNames, names), null)
+                : compile(null, ArrayUtils.addAll(this.headers, names)));
+    }
+
+    boolean isCompiledFrom(String[] jsonNames, String[] headers) {
+        return this.jsonNames == jsonNames && this.headers == headers;
+    }
+}
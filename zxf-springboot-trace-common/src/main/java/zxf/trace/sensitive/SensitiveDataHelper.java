@@ -1,16 +1,14 @@
 package zxf.trace.sensitive;
 
-import dev.blaauwendraad.masker.json.JsonMasker;
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
+import org.springframework.lang.Nullable;
 
-import java.util.Set;
-
-@Component
 public class SensitiveDataHelper {
     @Autowired
     private SensitiveConfiguration sensitiveConfiguration;
+    private volatile MaskingSnapshot maskingSnapshot;
 
     public String maskSensitiveDataFromJson(String content) {
         if (StringUtils.isEmpty(content)) {
@@ -18,22 +16,83 @@ public class SensitiveDataHelper {
         }
 
         // block-mode, default masking config
-        var jsonMasker = JsonMasker.getMasker(Set.of(sensitiveConfiguration.getJsonNames()));
+        var jsonMasker = currentMaskingSnapshot().jsonMasker();
+        if (jsonMasker == null) {
+            return content;
+        }
+
+        return jsonMasker.mask(content);
+    }
+
+    /**
+     * Masks a UTF-8 encoded JSON document without decoding it into a {@link String}.
+     *
+     * @return the masked document as UTF-8 bytes, or the input itself when there is nothing to mask
+     */
+    public byte[] maskSensitiveDataFromJson(byte[] content) {
+        if (ArrayUtils.isEmpty(content)) {
+            return content;
+        }
+
+        var jsonMasker = currentMaskingSnapshot().jsonMasker();
+        if (jsonMasker == null) {
+            return content;
+        }
 
         return jsonMasker.mask(content);
     }
 
+    /**
+     * Masks the global JSON names plus a route's own.
+     *
+     * @param extraJsonNames the route's names, always the same array instance for the same route
+     */
+    public byte[] maskSensitiveDataFromJson(byte[] content, @Nullable String[] extraJsonNames) {
+        if (extraJsonNames == null) {
+            return maskSensitiveDataFromJson(content);
+        }
+        if (ArrayUtils.isEmpty(content)) {
+            return content;
+        }
+
+        return routeMaskingSnapshot(extraJsonNames, true).jsonMasker().mask(content);
+    }
+
+    /**
+     * @param extraHeaders the route's headers, always the same array instance for the same route
+     */
+    public boolean isSensitiveHeader(String headerName, @Nullable String[] extraHeaders) {
+        if (extraHeaders == null) {
+            return isSensitiveHeader(headerName);
+        }
+        if (StringUtils.isEmpty(headerName)) {
+            return false;
+        }
+
+        return routeMaskingSnapshot(extraHeaders, false).sensitiveHeaders().contains(headerName);
+    }
+
     public Boolean isSensitiveHeader(String headerName) {
         if (StringUtils.isEmpty(headerName)) {
             return false;
         }
 
-        for (String sensitiveHeader : sensitiveConfiguration.getHeaders()) {
-            if (StringUtils.equalsIgnoreCase(headerName, sensitiveHeader)) {
-                return true;
-            }
+        return currentMaskingSnapshot().sensitiveHeaders().contains(headerName);
+    }
+
+    private MaskingSnapshot currentMaskingSnapshot() {
+        MaskingSnapshot snapshot = maskingSnapshot;
+        String[] jsonNames = sensitiveConfiguration.getJsonNames();
+        String[] headers = sensitiveConfiguration.getHeaders();
+        if (snapshot == null || !snapshot.isCompiledFrom(jsonNames, headers)) {
+            // Compiled at most once per configuration binding; a racing rebuild is harmless.
+            snapshot = MaskingSnapshot.compile(jsonNames, headers);
+            maskingSnapshot = snapshot;
         }
+        return snapshot;
+    }
 
-        return false;
+    private MaskingSnapshot routeMaskingSnapshot(String[] extraNames, boolean jsonNames) {
+        return currentMaskingSnapshot().forRoute(extraNames, jsonNames);
     }
 }
@@ -0,0 +1,96 @@
+package zxf.trace;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import zxf.trace.record.TraceRecord;
+import zxf.trace.record.TraceRecordWriter;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboundLoggingInterceptorTest {
+    private static final byte[] REQUEST_BODY = "{\"task\":1}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RESPONSE_BODY = "{\"items\":[1,2,3,4,5,6,7,8,9]}".getBytes(StandardCharsets.UTF_8);
+
+    private final List<TraceRecord> records = new CopyOnWriteArrayList<>();
+    private AnnotationConfigApplicationContext context;
+    private OutboundLoggingInterceptor outboundLoggingInterceptor;
+
+    @BeforeEach
+    void start() {
+        context = new AnnotationConfigApplicationContext();
+        TestPropertyValues.of("trace.async.enable=false").applyTo(context);
+        context.getBeanFactory().registerSingleton("traceRecordWriter", new TraceRecordWriter() {
+            @Override
+            public void write(TraceRecord record) {
+                records.add(record);
+            }
+        });
+        context.register(TraceAutoConfiguration.class);
+        context.refresh();
+        outboundLoggingInterceptor = context.getBean(OutboundLoggingInterceptor.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void fullyReadBodyIsLoggedOnClose() throws Exception {
+        ClientHttpResponse response = intercept();
+
+        try (InputStream body = response.getBody()) {
+            assertThat(body.readAllBytes()).isEqualTo(RESPONSE_BODY);
+        }
+        assertThat(records).isEmpty();
+        response.close();
+
+        assertThat(records).hasSize(1);
+        TraceRecord record = records.get(0);
+        assertThat(record.getStatusCode()).isEqualTo(200);
+        assertThat(record.getRequestBody().content()).isEqualTo(REQUEST_BODY);
+        assertThat(record.getResponseBody().content()).isEqualTo(RESPONSE_BODY);
+        assertThat(record.getResponseBody().truncated()).isFalse();
+    }
+
+    @Test
+    void partiallyReadBodyIsLoggedOnceAsTruncated() throws Exception {
+        ClientHttpResponse response = intercept();
+
+        byte[] head = response.getBody().readNBytes(8);
+        response.close();
+        response.close();
+
+        assertThat(records).hasSize(1);
+        TraceRecord record = records.get(0);
+        assertThat(record.getResponseBody().content()).isEqualTo(head);
+        assertThat(record.getResponseBody().truncated()).isTrue();
+        assertThat(record.getResponseBody().totalLength()).isEqualTo(RESPONSE_BODY.length);
+    }
+
+    private ClientHttpResponse intercept() throws Exception {
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST, URI.create("http://downstream.example/posts"));
+        request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return outboundLoggingInterceptor.intercept(request, REQUEST_BODY, (executedRequest, body) -> {
+            MockClientHttpResponse response = new MockClientHttpResponse(RESPONSE_BODY, HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            response.getHeaders().setContentLength(RESPONSE_BODY.length);
+            return response;
+        });
+    }
+}
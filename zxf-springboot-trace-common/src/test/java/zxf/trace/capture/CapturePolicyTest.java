@@ -0,0 +1,111 @@
+package zxf.trace.capture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.Level;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import zxf.trace.route.RoutePolicy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CapturePolicyTest {
+    private static final int MAX_BODY_BYTES = 1000;
+    private static final int OUTBOUND_MAX_BODY_BYTES = 500;
+    private static final int HEAD_BYTES = 100;
+    private static final long UNKNOWN = CapturedBody.UNKNOWN_LENGTH;
+
+    private AnnotationConfigApplicationContext context;
+    private CapturePolicy capturePolicy;
+
+    @BeforeEach
+    void setUp() {
+        CaptureConfiguration captureConfiguration = new CaptureConfiguration();
+        captureConfiguration.setMaxBodyBytes(MAX_BODY_BYTES);
+        captureConfiguration.getOutbound().setMaxBodyBytes(OUTBOUND_MAX_BODY_BYTES);
+        captureConfiguration.getPolicy().setHeadBytes(HEAD_BYTES);
+        captureConfiguration.getPolicy().setHeadOnlyAboveBytes(10_000L);
+
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("captureConfiguration", captureConfiguration);
+        context.register(CapturePolicy.class);
+        context.refresh();
+        capturePolicy = context.getBean(CapturePolicy.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void capturesTextUpToMaxBodyBytesOfTheDirection() {
+        assertThat(capturePolicy.inboundLimit("application/json", 200)).isEqualTo(MAX_BODY_BYTES);
+        assertThat(capturePolicy.inboundLimit("application/problem+json", UNKNOWN)).isEqualTo(MAX_BODY_BYTES);
+        assertThat(capturePolicy.inboundLimit("text/plain", 200)).isEqualTo(MAX_BODY_BYTES);
+        assertThat(capturePolicy.outboundLimit("application/xml", 200)).isEqualTo(OUTBOUND_MAX_BODY_BYTES);
+    }
+
+    @Test
+    void skipsBinaryAndStreamingBodies() {
+        assertThat(capturePolicy.inboundLimit("image/png", 200)).isZero();
+        assertThat(capturePolicy.inboundLimit("application/octet-stream", UNKNOWN)).isZero();
+        assertThat(capturePolicy.inboundLimit("multipart/form-data; boundary=abc", 200)).isZero();
+        // Binary wins over text/*
+        assertThat(capturePolicy.inboundLimit("text/event-stream", UNKNOWN)).isZero();
+    }
+
+    @Test
+    void keepsTheHeadOfOtherOrMissingTypes() {
+        assertThat(capturePolicy.inboundLimit("application/vnd.custom", 200)).isEqualTo(HEAD_BYTES);
+        assertThat(capturePolicy.inboundLimit(null, 200)).isEqualTo(HEAD_BYTES);
+        assertThat(capturePolicy.inboundLimit("not a media type", 200)).isEqualTo(HEAD_BYTES);
+    }
+
+    @Test
+    void keepsTheHeadOfTextDeclaredAboveHeadOnlyAbove() {
+        assertThat(capturePolicy.inboundLimit("application/json", 10_000)).isEqualTo(MAX_BODY_BYTES);
+        assertThat(capturePolicy.inboundLimit("application/json", 10_001)).isEqualTo(HEAD_BYTES);
+    }
+
+    @Test
+    void skipsEmptyBodies() {
+        assertThat(capturePolicy.inboundLimit("application/json", 0)).isZero();
+        assertThat(capturePolicy.inboundLimit(route(RoutePolicy.CaptureMode.FULL), "image/png", 0)).isZero();
+    }
+
+    @Test
+    void ignoresParametersOfTheType() {
+        assertThat(capturePolicy.inboundLimit("application/json;charset=UTF-8", 200)).isEqualTo(MAX_BODY_BYTES);
+        assertThat(capturePolicy.inboundLimit("application/json ; charset=ISO-8859-1", 200)).isEqualTo(MAX_BODY_BYTES);
+        assertThat(capturePolicy.inboundLimit("multipart/form-data; boundary=one", 200)).isZero();
+        assertThat(capturePolicy.inboundLimit("multipart/form-data; boundary=two", 200)).isZero();
+    }
+
+    @Test
+    void treatsChunkedBodiesAsOfUnknownLength() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentLength(20_000);
+        assertThat(capturePolicy.inboundLimit(headers)).isEqualTo(HEAD_BYTES);
+
+        headers.set(HttpHeaders.TRANSFER_ENCODING, "chunked");
+        assertThat(capturePolicy.inboundLimit(headers)).isEqualTo(MAX_BODY_BYTES);
+    }
+
+    @Test
+    void letsTheRouteOverrideTheTypeRules() {
+        assertThat(capturePolicy.inboundLimit(RoutePolicy.DEFAULT, "image/png", 200)).isZero();
+        assertThat(capturePolicy.inboundLimit(route(RoutePolicy.CaptureMode.FULL), "image/png", 200)).isEqualTo(MAX_BODY_BYTES);
+        assertThat(capturePolicy.outboundLimit(route(RoutePolicy.CaptureMode.FULL), "image/png", 200)).isEqualTo(OUTBOUND_MAX_BODY_BYTES);
+        assertThat(capturePolicy.inboundLimit(route(RoutePolicy.CaptureMode.HEAD), "application/json", 200)).isEqualTo(HEAD_BYTES);
+        assertThat(capturePolicy.inboundLimit(route(RoutePolicy.CaptureMode.METADATA), "application/json", 200)).isZero();
+        assertThat(capturePolicy.inboundLimit(route(RoutePolicy.CaptureMode.IGNORE), "application/json", 200)).isZero();
+    }
+
+    private static RoutePolicy route(RoutePolicy.CaptureMode capture) {
+        return new RoutePolicy("/api/**", capture, null, null, null, Level.INFO);
+    }
+}
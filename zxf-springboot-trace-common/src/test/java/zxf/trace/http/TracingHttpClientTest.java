@@ -0,0 +1,179 @@
+package zxf.trace.http;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import zxf.trace.TraceAutoConfiguration;
+import zxf.trace.record.TraceRecord;
+import zxf.trace.record.TraceRecordWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class TracingHttpClientTest {
+    private static final String REQUEST_BODY = "{\"task\":1}";
+    private static final String RESPONSE_HEAD = "{\"id\":";
+
+    private final List<TraceRecord> records = new CopyOnWriteArrayList<>();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HttpServer downstream;
+    private AnnotationConfigApplicationContext context;
+
+    @BeforeEach
+    void startDownstream() throws IOException {
+        downstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        downstream.createContext("/posts", exchange -> {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        // Declares 100 bytes and hangs up after a few of them
+        downstream.createContext("/broken", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 100);
+            OutputStream out = exchange.getResponseBody();
+            out.write(RESPONSE_HEAD.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            exchange.close();
+        });
+        downstream.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+        downstream.stop(0);
+    }
+
+    @Test
+    void sendLogsTheExchangeOnce() throws Exception {
+        HttpClient httpClient = start();
+
+        HttpResponse<String> response = httpClient.send(post("/posts"), HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.body()).isEqualTo(REQUEST_BODY);
+        assertLoggedOnce();
+    }
+
+    @Test
+    void sendAsyncLogsTheExchangeOnce() throws Exception {
+        HttpClient httpClient = start();
+
+        HttpResponse<String> response = httpClient.sendAsync(post("/posts"), HttpResponse.BodyHandlers.ofString()).get(10, TimeUnit.SECONDS);
+
+        assertThat(response.body()).isEqualTo(REQUEST_BODY);
+        assertLoggedOnce();
+    }
+
+    @Test
+    void sampledOutExchangesAreOnlyTimed() throws Exception {
+        HttpClient httpClient = start("trace.sampling.enable=true", "trace.sampling.ratio=0");
+
+        HttpResponse<String> response = httpClient.send(post("/posts"), HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.body()).isEqualTo(REQUEST_BODY);
+        assertThat(records).isEmpty();
+        assertThat(completeTimer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void brokenResponseBodyIsLoggedOnceAsTruncatedError() {
+        HttpClient httpClient = start();
+
+        assertThatThrownBy(() -> httpClient.send(post("/broken"), HttpResponse.BodyHandlers.ofString())).isInstanceOf(IOException.class);
+
+        assertThat(records).hasSize(1);
+        TraceRecord record = records.get(0);
+        assertThat(record.isError()).isTrue();
+        assertThat(record.getStatusCode()).isNull();
+        assertThat(new String(record.getRequestBody().content(), StandardCharsets.UTF_8)).isEqualTo(REQUEST_BODY);
+        assertThat(record.getResponseBody().truncated()).isTrue();
+        assertThat(record.getResponseBody().totalLength()).isEqualTo(100);
+        assertThat(new String(record.getResponseBody().content(), StandardCharsets.UTF_8)).isEqualTo(RESPONSE_HEAD);
+        // The response head arrived, the response never completed
+        assertThat(meterRegistry.get("trace.exchange").tag("phase", "headers").timer().count()).isEqualTo(1);
+        assertThat(completeTimer().count()).isZero();
+    }
+
+    @Test
+    void closeShutsTheDelegateDown() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "the HttpClient lifecycle needs JDK 21+");
+        start();
+        HttpClient delegate = HttpClient.newHttpClient();
+        HttpClient httpClient = context.getBean(HttpClientTracing.class).wrap(delegate);
+
+        // Called reflectively, the tests compile for 17 like the main code
+        HttpClient.class.getMethod("close").invoke(httpClient);
+
+        assertThat((Boolean) HttpClient.class.getMethod("isTerminated").invoke(delegate)).isTrue();
+        assertThat((Boolean) HttpClient.class.getMethod("isTerminated").invoke(httpClient)).isTrue();
+        assertThat((Boolean) HttpClient.class.getMethod("awaitTermination", Duration.class).invoke(httpClient, Duration.ofSeconds(1))).isTrue();
+    }
+
+    private HttpClient start(String... properties) {
+        context = new AnnotationConfigApplicationContext();
+        TestPropertyValues.of("trace.async.enable=false", "trace.metrics.enable=true").and(properties).applyTo(context);
+        context.getBeanFactory().registerSingleton("meterRegistry", meterRegistry);
+        context.getBeanFactory().registerSingleton("traceRecordWriter", new TraceRecordWriter() {
+            @Override
+            public void write(TraceRecord record) {
+                records.add(record);
+            }
+        });
+        context.register(TraceAutoConfiguration.class);
+        context.refresh();
+        return context.getBean(HttpClientTracing.class).wrap(HttpClient.newHttpClient());
+    }
+
+    private HttpRequest post(String path) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + downstream.getAddress().getPort() + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(REQUEST_BODY))
+                .build();
+    }
+
+    private void assertLoggedOnce() {
+        assertThat(records).hasSize(1);
+        TraceRecord record = records.get(0);
+        assertThat(record.isError()).isFalse();
+        assertThat(record.getStatusCode()).isEqualTo(200);
+        assertThat(new String(record.getRequestBody().content(), StandardCharsets.UTF_8)).isEqualTo(REQUEST_BODY);
+        assertThat(new String(record.getResponseBody().content(), StandardCharsets.UTF_8)).isEqualTo(REQUEST_BODY);
+        assertThat(record.getResponseBody().truncated()).isFalse();
+        assertThat(completeTimer().count()).isEqualTo(1);
+    }
+
+    private Timer completeTimer() {
+        return meterRegistry.get("trace.exchange").tag("phase", "complete").timer();
+    }
+}
@@ -0,0 +1,96 @@
+package zxf.trace.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import zxf.trace.record.TraceRecord;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceMeterTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AnnotationConfigApplicationContext context;
+    private TraceMetrics traceMetrics;
+
+    @BeforeEach
+    void setUp() {
+        TraceMetricsConfiguration traceMetricsConfiguration = new TraceMetricsConfiguration();
+        traceMetricsConfiguration.setEnable(true);
+
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("traceMetricsConfiguration", traceMetricsConfiguration);
+        context.getBeanFactory().registerSingleton("meterRegistry", meterRegistry);
+        context.register(TraceMetrics.class, TraceLatencyEndpoint.class);
+        context.refresh();
+        traceMetrics = context.getBean(TraceMetrics.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void summarizesTheCompleteLatencyOfTheRoute() {
+        TraceMeter meter = traceMetrics.meter(TraceRecord.Direction.INBOUND, "/api/ok-test");
+        for (int millis = 1; millis <= 100; millis++) {
+            meter.completed(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        ValueAtPercentile[] percentiles = meter.latencyPercentiles();
+
+        assertThat(percentiles).extracting(ValueAtPercentile::percentile).containsExactly(0.5, 0.95, 0.99);
+        assertThat(percentiles[0].value(TimeUnit.MILLISECONDS)).isBetween(45.0, 55.0);
+        assertThat(percentiles[2].value(TimeUnit.MILLISECONDS)).isBetween(95.0, 105.0);
+        assertThat(meter.latencySummary()).matches("p50 [\\d.]+ ms, p95 [\\d.]+ ms, p99 [\\d.]+ ms");
+    }
+
+    @Test
+    void sharesAPercentileSnapshotWithinASecond() {
+        TraceMeter meter = traceMetrics.meter(TraceRecord.Direction.OUTBOUND, "jsonplaceholder.typicode.com");
+        meter.completed(TimeUnit.MILLISECONDS.toNanos(10));
+
+        ValueAtPercentile[] percentiles = meter.latencyPercentiles();
+        meter.completed(TimeUnit.SECONDS.toNanos(10));
+
+        assertThat(meter.latencyPercentiles()).isSameAs(percentiles);
+    }
+
+    @Test
+    void noopHasNoPercentiles() {
+        TraceMeter.NOOP.completed(TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertThat(TraceMeter.NOOP.latencyPercentiles()).isEmpty();
+        assertThat(TraceMeter.NOOP.latencySummary()).isEmpty();
+        assertThat(TraceMeter.NOOP.start()).isZero();
+    }
+
+    @Test
+    void labelsPercentiles() {
+        assertThat(TraceMeter.percentileLabel(new ValueAtPercentile(0.5, 0))).isEqualTo("p50");
+        assertThat(TraceMeter.percentileLabel(new ValueAtPercentile(0.999, 0))).isEqualTo("p99.9");
+        assertThat(TraceMeter.percentileMillis(new ValueAtPercentile(0.5, TimeUnit.MICROSECONDS.toNanos(8_149)))).isEqualTo(8.1);
+    }
+
+    @Test
+    void listsRouteLatenciesByDirection() {
+        traceMetrics.meter(TraceRecord.Direction.INBOUND, "/api/ok-test").completed(TimeUnit.MILLISECONDS.toNanos(10));
+        traceMetrics.meter(TraceRecord.Direction.OUTBOUND, "jsonplaceholder.typicode.com").completed(TimeUnit.MILLISECONDS.toNanos(20));
+        TraceLatencyEndpoint traceLatencyEndpoint = context.getBean(TraceLatencyEndpoint.class);
+
+        List<TraceLatencyEndpoint.RouteLatency> inbound = traceLatencyEndpoint.latenciesOf("INBOUND");
+
+        assertThat(inbound).extracting(TraceLatencyEndpoint.RouteLatency::phase).containsExactly("committed", "complete");
+        assertThat(inbound).allMatch(latency -> latency.route().equals("/api/ok-test"));
+        assertThat(inbound.get(1).count()).isEqualTo(1);
+        assertThat(inbound.get(1).percentilesMs()).containsOnlyKeys("p50", "p95", "p99");
+        assertThat(traceLatencyEndpoint.latencies()).hasSize(4);
+    }
+}
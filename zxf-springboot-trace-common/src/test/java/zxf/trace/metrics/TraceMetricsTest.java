@@ -0,0 +1,105 @@
+package zxf.trace.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import zxf.trace.record.TraceRecord;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceMetricsTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AnnotationConfigApplicationContext context;
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void registersTheMetersOfARouteOnce() {
+        TraceMetrics traceMetrics = start(true, 10, meterRegistry);
+
+        TraceMeter meter = traceMetrics.meter(TraceRecord.Direction.INBOUND, "/api/ok-test");
+
+        assertThat(meter.isEnabled()).isTrue();
+        assertThat(traceMetrics.meter(TraceRecord.Direction.INBOUND, "/api/ok-test")).isSameAs(meter);
+        assertThat(traceMetrics.meter(TraceRecord.Direction.OUTBOUND, "/api/ok-test")).isNotSameAs(meter);
+        assertThat(meterRegistry.find("trace.exchange").tags("direction", "inbound", "route", "/api/ok-test", "phase", "committed").timer()).isNotNull();
+        assertThat(meterRegistry.find("trace.exchange").tags("direction", "outbound", "route", "/api/ok-test", "phase", "headers").timer()).isNotNull();
+        assertThat(meterRegistry.find("trace.overhead").tags("route", "/api/ok-test").timers()).hasSize(6);
+    }
+
+    @Test
+    void recordsIntoTheMetersOfTheRoute() {
+        TraceMetrics traceMetrics = start(true, 10, meterRegistry);
+        TraceMeter meter = traceMetrics.meter(TraceRecord.Direction.OUTBOUND, "jsonplaceholder.typicode.com");
+
+        meter.body(100, true);
+        meter.skipped();
+        meter.maskingFailed();
+        meter.logged(512);
+
+        assertThat(meterRegistry.get("trace.body.captured").tag("route", "jsonplaceholder.typicode.com").summary().totalAmount()).isEqualTo(100);
+        assertThat(meterRegistry.get("trace.body.truncated").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("trace.body.skipped").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("trace.masking.failures").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("trace.logged").summary().totalAmount()).isEqualTo(512);
+    }
+
+    @Test
+    void tagsRoutesBeyondMaxRoutesAsOther() {
+        TraceMetrics traceMetrics = start(true, 2, meterRegistry);
+
+        TraceMeter first = traceMetrics.meter(TraceRecord.Direction.INBOUND, "/a");
+        TraceMeter second = traceMetrics.meter(TraceRecord.Direction.INBOUND, "/b");
+        TraceMeter third = traceMetrics.meter(TraceRecord.Direction.INBOUND, "/c");
+
+        assertThat(first).isNotSameAs(second);
+        assertThat(traceMetrics.meter(TraceRecord.Direction.INBOUND, "/d")).isSameAs(third);
+        assertThat(traceMetrics.meter(TraceRecord.Direction.INBOUND, "/a")).isSameAs(first);
+        assertThat(meterRegistry.find("trace.exchange").tag("route", "OTHER").timers()).isNotEmpty();
+        assertThat(meterRegistry.find("trace.exchange").tag("route", "/c").timers()).isEmpty();
+    }
+
+    @Test
+    void tagsExchangesWithoutARouteAsOther() {
+        TraceMetrics traceMetrics = start(true, 10, meterRegistry);
+
+        traceMetrics.meter(TraceRecord.Direction.OUTBOUND, null);
+
+        assertThat(meterRegistry.find("trace.exchange").tag("route", "OTHER").timers()).isNotEmpty();
+    }
+
+    @Test
+    void handsOutNoopWhenDisabled() {
+        TraceMetrics traceMetrics = start(false, 10, meterRegistry);
+
+        assertThat(traceMetrics.meter(TraceRecord.Direction.INBOUND, "/api/ok-test")).isSameAs(TraceMeter.NOOP);
+        assertThat(meterRegistry.getMeters()).isEmpty();
+    }
+
+    @Test
+    void handsOutNoopWithoutAMeterRegistry() {
+        TraceMetrics traceMetrics = start(true, 10, null);
+
+        assertThat(traceMetrics.meter(TraceRecord.Direction.INBOUND, "/api/ok-test")).isSameAs(TraceMeter.NOOP);
+    }
+
+    private TraceMetrics start(boolean enable, int maxRoutes, MeterRegistry meterRegistry) {
+        TraceMetricsConfiguration traceMetricsConfiguration = new TraceMetricsConfiguration();
+        traceMetricsConfiguration.setEnable(enable);
+        traceMetricsConfiguration.setMaxRoutes(maxRoutes);
+
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("traceMetricsConfiguration", traceMetricsConfiguration);
+        if (meterRegistry != null) {
+            context.getBeanFactory().registerSingleton("meterRegistry", meterRegistry);
+        }
+        context.register(TraceMetrics.class);
+        context.refresh();
+        return context.getBean(TraceMetrics.class);
+    }
+}
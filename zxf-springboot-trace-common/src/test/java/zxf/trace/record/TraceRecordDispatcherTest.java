@@ -0,0 +1,116 @@
+package zxf.trace.record;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceRecordDispatcherTest {
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+    private final BlockingTraceRecordWriter traceRecordWriter = new BlockingTraceRecordWriter();
+    private AnnotationConfigApplicationContext context;
+    private TraceRecordDispatcher traceRecordDispatcher;
+
+    @AfterEach
+    void tearDown() {
+        released.countDown();
+        context.close();
+    }
+
+    @Test
+    void writesOnTheConsumerThread() throws Exception {
+        start(true, 8);
+        released.countDown();
+        TraceRecord record = record(false);
+
+        traceRecordDispatcher.dispatch(record);
+        traceRecordDispatcher.stop();
+
+        assertThat(traceRecordWriter.records).containsExactly(record);
+        assertThat(traceRecordWriter.threads).containsExactly("trace-dispatcher");
+        assertThat(traceRecordDispatcher.getWrittenCount()).isEqualTo(1);
+    }
+
+    @Test
+    void dropsSuccessesAndWritesErrorsInlineWhenTheQueueIsFull() throws Exception {
+        start(true, 1);
+        TraceRecord inProgress = record(false);
+        TraceRecord queued = record(false);
+        TraceRecord dropped = record(false);
+        TraceRecord error = record(true);
+
+        traceRecordDispatcher.dispatch(inProgress);
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        traceRecordDispatcher.dispatch(queued);
+        traceRecordDispatcher.dispatch(dropped);
+        traceRecordDispatcher.dispatch(error);
+
+        assertThat(traceRecordDispatcher.getDroppedCount()).isEqualTo(1);
+        assertThat(traceRecordDispatcher.getInlineWrittenCount()).isEqualTo(1);
+        assertThat(traceRecordWriter.records).containsExactly(error);
+        assertThat(traceRecordWriter.threads).containsExactly(Thread.currentThread().getName());
+
+        released.countDown();
+        traceRecordDispatcher.stop();
+        assertThat(traceRecordWriter.records).containsExactly(error, inProgress, queued);
+        assertThat(traceRecordDispatcher.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void writesOnTheCallingThreadWhenDisabled() {
+        start(false, 8);
+        released.countDown();
+        TraceRecord record = record(false);
+
+        traceRecordDispatcher.dispatch(record);
+
+        assertThat(traceRecordWriter.records).containsExactly(record);
+        assertThat(traceRecordWriter.threads).containsExactly(Thread.currentThread().getName());
+    }
+
+    private void start(boolean enable, int queueCapacity) {
+        AsyncTraceConfiguration asyncTraceConfiguration = new AsyncTraceConfiguration();
+        asyncTraceConfiguration.setEnable(enable);
+        asyncTraceConfiguration.setQueueCapacity(queueCapacity);
+
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("asyncTraceConfiguration", asyncTraceConfiguration);
+        context.getBeanFactory().registerSingleton("traceRecordWriter", traceRecordWriter);
+        context.register(TraceRecordDispatcher.class);
+        context.refresh();
+        traceRecordDispatcher = context.getBean(TraceRecordDispatcher.class);
+    }
+
+    private static TraceRecord record(boolean error) {
+        return TraceRecord.builder().direction(TraceRecord.Direction.INBOUND).error(error).createdNanos(System.nanoTime()).build();
+    }
+
+    /**
+     * Records what is written and where, holding the consumer thread until released.
+     */
+    private class BlockingTraceRecordWriter extends TraceRecordWriter {
+        private final List<TraceRecord> records = new CopyOnWriteArrayList<>();
+        private final List<String> threads = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void write(TraceRecord record) {
+            if (!record.isError()) {
+                writing.countDown();
+                try {
+                    released.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            records.add(record);
+            threads.add(Thread.currentThread().getName());
+        }
+    }
+}
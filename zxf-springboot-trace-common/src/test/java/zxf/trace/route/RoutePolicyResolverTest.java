@@ -0,0 +1,150 @@
+package zxf.trace.route;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import zxf.trace.record.TraceRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoutePolicyResolverTest {
+    private AnnotationConfigApplicationContext context;
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void resolvesTheFirstMatchingRoute() {
+        RoutePolicyResolver resolver = start(
+                route(null, RoutePolicy.CaptureMode.IGNORE, "/actuator/**"),
+                route(null, RoutePolicy.CaptureMode.METADATA, "/api/files/{id}", "/api/uploads/**"),
+                route(null, RoutePolicy.CaptureMode.FULL, "/api/**"));
+
+        assertThat(resolver.inbound("/actuator/health").capture()).isEqualTo(RoutePolicy.CaptureMode.IGNORE);
+        assertThat(resolver.inbound("/api/files/42").pattern()).isEqualTo("/api/files/{id}");
+        assertThat(resolver.inbound("/api/uploads/a/b").pattern()).isEqualTo("/api/uploads/**");
+        assertThat(resolver.inbound("/api/ok-test").capture()).isEqualTo(RoutePolicy.CaptureMode.FULL);
+        assertThat(resolver.inbound("/other")).isSameAs(RoutePolicy.DEFAULT);
+        assertThat(resolver.inbound(null)).isSameAs(RoutePolicy.DEFAULT);
+    }
+
+    @Test
+    void resolvesRoutesOfTheirDirectionOnly() {
+        RoutePolicyResolver resolver = start(
+                route(TraceRecord.Direction.INBOUND, RoutePolicy.CaptureMode.IGNORE, "/health"),
+                route(TraceRecord.Direction.OUTBOUND, RoutePolicy.CaptureMode.METADATA, "/posts/**"));
+
+        assertThat(resolver.inbound("/health").capture()).isEqualTo(RoutePolicy.CaptureMode.IGNORE);
+        assertThat(resolver.outbound("/health")).isSameAs(RoutePolicy.DEFAULT);
+        assertThat(resolver.outbound("/posts/1").capture()).isEqualTo(RoutePolicy.CaptureMode.METADATA);
+        assertThat(resolver.inbound("/posts/1")).isSameAs(RoutePolicy.DEFAULT);
+    }
+
+    @Test
+    void letsEarlierPatternsShadowLiteralOnes() {
+        RoutePolicyResolver resolver = start(
+                route(null, RoutePolicy.CaptureMode.IGNORE, "/api/internal/**"),
+                route(null, RoutePolicy.CaptureMode.FULL, "/api/internal/status", "/api/status"),
+                route(null, RoutePolicy.CaptureMode.HEAD, "/api/status"));
+
+        assertThat(resolver.inbound("/api/internal/status").capture()).isEqualTo(RoutePolicy.CaptureMode.IGNORE);
+        assertThat(resolver.inbound("/api/status").capture()).isEqualTo(RoutePolicy.CaptureMode.FULL);
+    }
+
+    @Test
+    void resolvesTheSamePolicyForPathsBeyondTheCacheBound() {
+        RoutePolicyResolver resolver = start(
+                route(null, RoutePolicy.CaptureMode.HEAD, "/api/users/{id}"),
+                route(null, RoutePolicy.CaptureMode.FULL, "/api/status"));
+        RoutePolicy users = resolver.inbound("/api/users/0");
+
+        IntStream.range(1, 5_000).forEach(id -> assertThat(resolver.inbound("/api/users/" + id)).isSameAs(users));
+        IntStream.range(0, 5_000).forEach(id -> assertThat(resolver.inbound("/other/" + id)).isSameAs(RoutePolicy.DEFAULT));
+
+        assertThat(resolver.inbound("/api/users/0")).isSameAs(users);
+        assertThat(resolver.inbound("/api/status").capture()).isEqualTo(RoutePolicy.CaptureMode.FULL);
+    }
+
+    @Test
+    void resolvesConcurrentlyWithinTheCacheBound() throws Exception {
+        RoutePolicyResolver resolver = start(
+                route(null, RoutePolicy.CaptureMode.HEAD, "/api/users/{id}"),
+                route(null, RoutePolicy.CaptureMode.FULL, "/api/status"));
+        RoutePolicy users = resolver.inbound("/api/users/0");
+        RoutePolicy status = resolver.inbound("/api/status");
+        int threads = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> resolutions = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int offset = thread * 10_000;
+                resolutions.add(executor.submit(() -> {
+                    start.await();
+                    for (int id = offset; id < offset + 10_000; id++) {
+                        assertThat(resolver.inbound("/api/users/" + id)).isSameAs(users);
+                        assertThat(resolver.inbound("/other/" + (id % 2_000))).isSameAs(RoutePolicy.DEFAULT);
+                        assertThat(resolver.inbound("/api/status")).isSameAs(status);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> resolution : resolutions) {
+                resolution.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Racing misses may each add a path past the bound, never more than one per thread
+        assertThat(resolver.cachedInboundPaths()).isLessThanOrEqualTo(1024 + threads);
+    }
+
+    @Test
+    void keepsTheExtraNamesOfTheRoute() {
+        RouteConfiguration.Route route = route(null, RoutePolicy.CaptureMode.DEFAULT, "/api/cards/**");
+        route.setMaskJsonNames(new String[]{"cardNumber"});
+        route.setMaskHeaders(new String[0]);
+        route.setSampleRatio(0.5);
+        RoutePolicyResolver resolver = start(route);
+
+        RoutePolicy routePolicy = resolver.inbound("/api/cards/1");
+
+        assertThat(routePolicy.maskJsonNames()).containsExactly("cardNumber");
+        assertThat(routePolicy.maskHeaders()).isNull();
+        assertThat(routePolicy.sampleRatio()).isEqualTo(0.5);
+        // The same array instance for every exchange of the route, which keys its masking snapshot
+        assertThat(resolver.inbound("/api/cards/2").maskJsonNames()).isSameAs(routePolicy.maskJsonNames());
+    }
+
+    private RoutePolicyResolver start(RouteConfiguration.Route... routes) {
+        RouteConfiguration routeConfiguration = new RouteConfiguration();
+        routeConfiguration.setRoutes(List.of(routes));
+
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("routeConfiguration", routeConfiguration);
+        context.register(RoutePolicyResolver.class);
+        context.refresh();
+        return context.getBean(RoutePolicyResolver.class);
+    }
+
+    private static RouteConfiguration.Route route(TraceRecord.Direction direction, RoutePolicy.CaptureMode capture, String... patterns) {
+        RouteConfiguration.Route route = new RouteConfiguration.Route();
+        route.setDirection(direction);
+        route.setCapture(capture);
+        route.setPatterns(List.of(patterns));
+        return route;
+    }
+}
@@ -0,0 +1,98 @@
+package zxf.trace.sampling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import zxf.trace.record.TraceRecord;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceGroupBufferTest {
+    private final TailSamplingConfiguration tailSamplingConfiguration = new TailSamplingConfiguration();
+    private AnnotationConfigApplicationContext context;
+    private TraceGroupBuffer traceGroupBuffer;
+
+    @BeforeEach
+    void setUp() {
+        tailSamplingConfiguration.setEnable(true);
+        tailSamplingConfiguration.setMaxGroups(2);
+
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("tailSamplingConfiguration", tailSamplingConfiguration);
+        context.register(TraceGroupBuffer.class);
+        context.refresh();
+        traceGroupBuffer = context.getBean(TraceGroupBuffer.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+        context.close();
+    }
+
+    @Test
+    void buffersRecordsOfTheCurrentRequestUntilClosed() {
+        TraceGroup group = traceGroupBuffer.open();
+        TraceRecord record = record();
+
+        assertThat(traceGroupBuffer.isGroupOpen()).isTrue();
+        assertThat(traceGroupBuffer.offer(record)).isTrue();
+        assertThat(traceGroupBuffer.close(group)).containsExactly(record);
+
+        assertThat(traceGroupBuffer.isGroupOpen()).isFalse();
+        assertThat(traceGroupBuffer.offer(record())).isFalse();
+    }
+
+    @Test
+    void keepsRequestsWithTheSameRequestIdApart() {
+        // Both clients send the same X-Request-Id
+        MDC.put("ReqId", "req-1");
+        TraceGroup first = traceGroupBuffer.open();
+        traceGroupBuffer.unbind();
+        TraceGroup second = traceGroupBuffer.open();
+        TraceRecord secondRecord = record();
+
+        assertThat(second).isNotNull().isNotSameAs(first);
+        assertThat(traceGroupBuffer.offer(secondRecord)).isTrue();
+        assertThat(traceGroupBuffer.close(first)).isEmpty();
+        assertThat(traceGroupBuffer.close(second)).containsExactly(secondRecord);
+    }
+
+    @Test
+    void findsTheGroupOnlyWhereItIsBound() {
+        TraceGroup group = traceGroupBuffer.open();
+        traceGroupBuffer.unbind();
+
+        assertThat(traceGroupBuffer.isGroupOpen()).isFalse();
+        assertThat(traceGroupBuffer.offer(record())).isFalse();
+
+        // e.g. the async dispatch of the request
+        traceGroupBuffer.bind(group);
+        assertThat(traceGroupBuffer.offer(record())).isTrue();
+        assertThat(traceGroupBuffer.close(group)).hasSize(1);
+    }
+
+    @Test
+    void opensNoMoreThanMaxGroups() {
+        assertThat(traceGroupBuffer.open()).isNotNull();
+        assertThat(traceGroupBuffer.open()).isNotNull();
+        traceGroupBuffer.unbind();
+
+        assertThat(traceGroupBuffer.open()).isNull();
+        assertThat(traceGroupBuffer.offer(record())).isFalse();
+    }
+
+    @Test
+    void opensNoGroupWhenDisabled() {
+        tailSamplingConfiguration.setEnable(false);
+
+        assertThat(traceGroupBuffer.open()).isNull();
+        assertThat(traceGroupBuffer.close(null)).isEmpty();
+    }
+
+    private static TraceRecord record() {
+        return TraceRecord.builder().direction(TraceRecord.Direction.OUTBOUND).build();
+    }
+}
@@ -0,0 +1,89 @@
+package zxf.trace.sampling;
+
+import org.junit.jupiter.api.Test;
+import zxf.trace.record.TraceRecord;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceGroupTest {
+
+    @Test
+    void refusesRecordsOnceClosed() {
+        TraceGroup group = new TraceGroup("req-1", 8);
+        TraceRecord first = record(false);
+
+        assertThat(group.add(first, false)).isTrue();
+        assertThat(group.close()).containsExactly(first);
+        assertThat(group.add(record(false), false)).isFalse();
+    }
+
+    @Test
+    void refusesRecordsBeyondItsCapacity() {
+        TraceGroup group = new TraceGroup("req-1", 2);
+
+        assertThat(group.add(record(false), false)).isTrue();
+        assertThat(group.add(record(false), false)).isTrue();
+        assertThat(group.add(record(false), false)).isFalse();
+        assertThat(group.close()).hasSize(2);
+    }
+
+    @Test
+    void isFailedByAnErrorOrSlowHop() {
+        TraceGroup healthy = new TraceGroup("req-1", 8);
+        healthy.add(record(false), false);
+        assertThat(healthy.isFailed()).isFalse();
+
+        TraceGroup errored = new TraceGroup("req-2", 8);
+        errored.add(record(true), false);
+        assertThat(errored.isFailed()).isTrue();
+
+        TraceGroup slow = new TraceGroup("req-3", 8);
+        slow.add(record(false), true);
+        assertThat(slow.isFailed()).isTrue();
+    }
+
+    @Test
+    void everyAcceptedRecordIsReturnedByClose() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 500; round++) {
+                TraceGroup group = new TraceGroup("req-" + round, 64);
+                CountDownLatch start = new CountDownLatch(1);
+                TraceRecord[] records = new TraceRecord[4];
+                Future<?>[] accepted = new Future<?>[records.length];
+                for (int i = 0; i < records.length; i++) {
+                    TraceRecord record = records[i] = record(false);
+                    accepted[i] = executor.submit(() -> {
+                        start.await();
+                        return group.add(record, false);
+                    });
+                }
+                start.countDown();
+                List<TraceRecord> closed = group.close();
+                // Records are values, an accepted record must not vouch for its refused twin
+                Set<TraceRecord> closedRecords = Collections.newSetFromMap(new IdentityHashMap<>());
+                closedRecords.addAll(closed);
+
+                for (int i = 0; i < records.length; i++) {
+                    // A record is either in the closed group or refused, so its caller logs it
+                    assertThat(closedRecords.contains(records[i])).isEqualTo(accepted[i].get());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static TraceRecord record(boolean error) {
+        return TraceRecord.builder().direction(TraceRecord.Direction.OUTBOUND).error(error).build();
+    }
+}
@@ -0,0 +1,132 @@
+package zxf.trace.sampling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.Level;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import zxf.trace.route.RoutePolicy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceSamplerTest {
+    private AnnotationConfigApplicationContext context;
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void samplesEverythingWhenDisabled() {
+        SamplingConfiguration samplingConfiguration = new SamplingConfiguration();
+        samplingConfiguration.setRatio(0.0);
+        TraceSampler traceSampler = start(samplingConfiguration);
+
+        assertThat(traceSampler.isEnabled()).isFalse();
+        assertThat(traceSampler.sample("/api/a")).isTrue();
+    }
+
+    @Test
+    void ratioOfZeroSamplesNothing() {
+        SamplingConfiguration samplingConfiguration = enabled();
+        samplingConfiguration.setRatio(0.0);
+        TraceSampler traceSampler = start(samplingConfiguration);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(traceSampler.sample("/api/a")).isFalse();
+        }
+    }
+
+    @Test
+    void routeSampleRatioReplacesTheSampler() {
+        SamplingConfiguration samplingConfiguration = enabled();
+        samplingConfiguration.setRatio(0.0);
+        TraceSampler traceSampler = start(samplingConfiguration);
+
+        assertThat(traceSampler.sample("/api/a", routePolicy(1.0))).isTrue();
+        assertThat(traceSampler.sample("/api/a", RoutePolicy.DEFAULT)).isFalse();
+
+        samplingConfiguration.setEnable(false);
+        assertThat(traceSampler.sample("/api/a", routePolicy(0.0))).isFalse();
+    }
+
+    @Test
+    void routeBucketsLimitEachRouteToItsBurst() {
+        SamplingConfiguration samplingConfiguration = enabled();
+        samplingConfiguration.setRoutePermitsPerSecond(0.001);
+        samplingConfiguration.setRouteBurst(2);
+        TraceSampler traceSampler = start(samplingConfiguration);
+
+        assertThat(traceSampler.sample("/api/a")).isTrue();
+        assertThat(traceSampler.sample("/api/a")).isTrue();
+        assertThat(traceSampler.sample("/api/a")).isFalse();
+        assertThat(traceSampler.sample("/api/b")).isTrue();
+    }
+
+    @Test
+    void routesBeyondMaxRoutesShareOneBucket() {
+        SamplingConfiguration samplingConfiguration = enabled();
+        samplingConfiguration.setRoutePermitsPerSecond(0.001);
+        samplingConfiguration.setRouteBurst(1);
+        samplingConfiguration.setMaxRoutes(1);
+        TraceSampler traceSampler = start(samplingConfiguration);
+
+        assertThat(traceSampler.sample("/api/a")).isTrue();
+        assertThat(traceSampler.sample("/api/b")).isTrue();
+        assertThat(traceSampler.sample("/api/c")).isFalse();
+    }
+
+    @Test
+    void globalCapAppliesOverAllRoutes() {
+        SamplingConfiguration samplingConfiguration = enabled();
+        samplingConfiguration.setMaxPermitsPerSecond(0.001);
+        samplingConfiguration.setMaxBurst(1);
+        TraceSampler traceSampler = start(samplingConfiguration);
+
+        assertThat(traceSampler.sample("/api/a")).isTrue();
+        assertThat(traceSampler.sample("/api/b")).isFalse();
+    }
+
+    @Test
+    void samplingDecisionIsTakenLazilyAndOnce() {
+        SamplingConfiguration samplingConfiguration = enabled();
+        samplingConfiguration.setRoutePermitsPerSecond(0.001);
+        samplingConfiguration.setRouteBurst(1);
+        TraceSampler traceSampler = start(samplingConfiguration);
+        AtomicInteger routeLookups = new AtomicInteger();
+
+        SamplingDecision samplingDecision = traceSampler.decide(() -> {
+            routeLookups.incrementAndGet();
+            return "/api/a";
+        }, RoutePolicy.DEFAULT);
+        assertThat(routeLookups).hasValue(0);
+
+        assertThat(samplingDecision.isSampled()).isTrue();
+        // The bucket is empty now, yet the decision holds
+        assertThat(samplingDecision.isSampled()).isTrue();
+        assertThat(routeLookups).hasValue(1);
+        assertThat(traceSampler.sample("/api/a")).isFalse();
+    }
+
+    private TraceSampler start(SamplingConfiguration samplingConfiguration) {
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("samplingConfiguration", samplingConfiguration);
+        context.register(TraceSampler.class);
+        context.refresh();
+        return context.getBean(TraceSampler.class);
+    }
+
+    private static SamplingConfiguration enabled() {
+        SamplingConfiguration samplingConfiguration = new SamplingConfiguration();
+        samplingConfiguration.setEnable(true);
+        return samplingConfiguration;
+    }
+
+    private static RoutePolicy routePolicy(double sampleRatio) {
+        return new RoutePolicy("/api/**", RoutePolicy.CaptureMode.DEFAULT, null, null, sampleRatio, Level.INFO);
+    }
+}
@@ -0,0 +1,80 @@
+package zxf.trace.sensitive;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SensitiveDataHelperTest {
+    private static final String JSON = "{\"email\":\"a@b.c\",\"token\":\"secret\",\"cardNumber\":\"4111\",\"amount\":\"10\"}";
+
+    private final SensitiveConfiguration sensitiveConfiguration = new SensitiveConfiguration();
+    private AnnotationConfigApplicationContext context;
+    private SensitiveDataHelper sensitiveDataHelper;
+
+    @BeforeEach
+    void setUp() {
+        sensitiveConfiguration.setJsonNames(new String[]{"email", "token"});
+        sensitiveConfiguration.setHeaders(new String[]{"Authorization"});
+
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("sensitiveConfiguration", sensitiveConfiguration);
+        context.register(SensitiveDataHelper.class);
+        context.refresh();
+        sensitiveDataHelper = context.getBean(SensitiveDataHelper.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void masksTheGlobalNames() {
+        String masked = sensitiveDataHelper.maskSensitiveDataFromJson(JSON);
+
+        assertThat(masked).doesNotContain("a@b.c", "secret").contains("4111", "\"10\"");
+        assertThat(sensitiveDataHelper.isSensitiveHeader("authorization")).isTrue();
+        assertThat(sensitiveDataHelper.isSensitiveHeader("Task")).isFalse();
+    }
+
+    @Test
+    void masksTheNamesOfARouteOnTopOfTheGlobalOnes() {
+        // token repeats a global name
+        String[] routeNames = {"cardNumber", "token"};
+
+        String masked = mask(routeNames);
+
+        assertThat(masked).doesNotContain("a@b.c", "secret", "4111").contains("\"10\"");
+        assertThat(sensitiveDataHelper.maskSensitiveDataFromJson(JSON)).contains("4111");
+    }
+
+    @Test
+    void masksTheHeadersOfARouteOnTopOfTheGlobalOnes() {
+        String[] routeHeaders = {"X-Api-Key", "Authorization"};
+
+        assertThat(sensitiveDataHelper.isSensitiveHeader("x-api-key", routeHeaders)).isTrue();
+        assertThat(sensitiveDataHelper.isSensitiveHeader("Authorization", routeHeaders)).isTrue();
+        assertThat(sensitiveDataHelper.isSensitiveHeader("Task", routeHeaders)).isFalse();
+        assertThat(sensitiveDataHelper.isSensitiveHeader("X-Api-Key", null)).isFalse();
+    }
+
+    @Test
+    void recompilesRouteMaskingWhenTheConfigurationIsRebound() {
+        String[] routeNames = {"cardNumber"};
+        assertThat(mask(routeNames)).doesNotContain("a@b.c");
+
+        sensitiveConfiguration.setJsonNames(new String[]{"token"});
+
+        assertThat(mask(routeNames)).contains("a@b.c").doesNotContain("secret", "4111");
+    }
+
+    private String mask(String[] routeNames) {
+        byte[] masked = sensitiveDataHelper.maskSensitiveDataFromJson(JSON.getBytes(StandardCharsets.UTF_8), routeNames);
+        return new String(masked, StandardCharsets.UTF_8);
+    }
+}
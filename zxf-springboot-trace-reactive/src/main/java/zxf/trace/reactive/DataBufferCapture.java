@@ -0,0 +1,128 @@
+package zxf.trace.reactive;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import zxf.trace.capture.CapturedBody;
+import zxf.trace.metrics.TraceMeter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded body capture over the buffers flowing through a decorator.
+ * <p>
+ * Buffers are retained rather than copied where that is cheap: a chunk keeps a reference to the
+ * original buffer plus the read window seen when it passed by, up to {@code maxBodyBytes} in total.
+ * A retained buffer pins its whole capacity though, not just the captured window, so buffers are only
+ * retained while their capacities fit in {@code maxBodyBytes} as well; the captured window of any other
+ * buffer is copied out on the spot. Bytes of retained buffers are only copied out by
+ * {@link #toCapturedBody}, i.e. when the exchange is actually logged, and {@link #release()} must be
+ * called exactly once the exchange is done so pooled buffers go back to their allocator.
+ * <p>
+ * With a limit of {@code 0} the capture policy skipped the body: decorators then do not hook into the
+ * body at all, and only the declared length is recorded.
+ */
+public class DataBufferCapture {
+    private final int maxBodyBytes;
+    private final Queue<Chunk> chunks = new ConcurrentLinkedQueue<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong pinnedBytes = new AtomicLong();
+    private volatile boolean released;
+
+    public DataBufferCapture(int maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    public void capture(DataBuffer dataBuffer) {
+        int readable = dataBuffer.readableByteCount();
+        long offset = totalBytes.getAndAdd(readable);
+        if (released || offset >= maxBodyBytes || readable == 0) {
+            return;
+        }
+
+        int length = (int) Math.min(readable, maxBodyBytes - offset);
+        chunks.add(pin(dataBuffer.capacity()) ? new Chunk(DataBufferUtils.retain(dataBuffer), dataBuffer.readPosition(), length)
+                : copyOf(dataBuffer, length));
+        if (released) {
+            // Lost the race against release(), hand back whatever is still queued
+            drain();
+        }
+    }
+
+    private boolean pin(int capacity) {
+        if (pinnedBytes.addAndGet(capacity) <= maxBodyBytes) {
+            return true;
+        }
+        pinnedBytes.addAndGet(-capacity);
+        return false;
+    }
+
+    private static Chunk copyOf(DataBuffer dataBuffer, int length) {
+        byte[] bytes = new byte[length];
+        dataBuffer.toByteBuffer(dataBuffer.readPosition(), ByteBuffer.wrap(bytes), 0, length);
+        // Heap buffers need no release, they drain like the retained ones
+        return new Chunk(DefaultDataBufferFactory.sharedInstance.wrap(bytes), 0, length);
+    }
+
+    public boolean isEnabled() {
+        return maxBodyBytes > 0;
+    }
+
+    public boolean isEmpty() {
+        return totalBytes.get() == 0;
+    }
+
+    public long getTotalLength() {
+        return totalBytes.get();
+    }
+
+    public boolean isTruncated() {
+        return totalBytes.get() > maxBodyBytes;
+    }
+
+    public byte[] toByteArray() {
+        int size = (int) Math.min(totalBytes.get(), maxBodyBytes);
+        ByteBuffer target = ByteBuffer.allocate(size);
+        for (Chunk chunk : chunks) {
+            int length = Math.min(chunk.length, target.remaining());
+            chunk.buffer.toByteBuffer(chunk.position, target, target.position(), length);
+            target.position(target.position() + length);
+        }
+        return target.position() == size ? target.array() : Arrays.copyOf(target.array(), target.position());
+    }
+
+    /**
+     * Copies the captured bytes out for the trace record. Copying the retained buffers out is metered
+     * as the capture phase, since that is where this capture pays for its bytes.
+     */
+    public CapturedBody toCapturedBody(HttpHeaders headers, TraceMeter meter) {
+        if (maxBodyBytes == 0) {
+            return CapturedBody.notCaptured(headers.getContentLength());
+        }
+
+        long captureStartNanos = meter.start();
+        CapturedBody body = new CapturedBody(toByteArray(), getTotalLength(), isTruncated());
+        meter.captured(captureStartNanos);
+        return body;
+    }
+
+    public void release() {
+        released = true;
+        drain();
+    }
+
+    private void drain() {
+        Chunk chunk;
+        while ((chunk = chunks.poll()) != null) {
+            DataBufferUtils.release(chunk.buffer);
+        }
+    }
+
+    private record Chunk(DataBuffer buffer, int position, int length) {
+    }
+}
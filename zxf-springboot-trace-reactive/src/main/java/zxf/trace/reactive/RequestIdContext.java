@@ -0,0 +1,50 @@
+package zxf.trace.reactive;
+
+import io.micrometer.context.ContextRegistry;
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+import zxf.trace.mdc.MDCConfiguration;
+
+/**
+ * Request id correlation for the reactive stack.
+ * <p>
+ * The id travels in the Reactor {@link Context} under the MDC key and is only copied into the MDC
+ * around trace log statements, through {@link #restoreMdc(ContextView)}. No global
+ * {@code Hooks.onEachOperator} / automatic context propagation is installed, so operators which do
+ * not log pay nothing.
+ */
+public class RequestIdContext {
+    private static final ContextSnapshot.Scope NOOP_SCOPE = () -> {
+    };
+
+    @Autowired
+    private MDCConfiguration mdcConfiguration;
+
+    private final ContextSnapshotFactory contextSnapshotFactory = ContextSnapshotFactory.builder().build();
+
+    @PostConstruct
+    public void registerMdcAccessor() {
+        if (mdcConfiguration.getEnable()) {
+            String key = mdcConfiguration.getKey();
+            ContextRegistry.getInstance().registerThreadLocalAccessor(key, () -> MDC.get(key), value -> MDC.put(key, value), () -> MDC.remove(key));
+        }
+    }
+
+    public Context contextOf(ServerHttpRequest request) {
+        String requestId = mdcConfiguration.getEnable() ? request.getHeaders().getFirst(mdcConfiguration.getHeader()) : null;
+        return requestId == null ? Context.empty() : Context.of(mdcConfiguration.getKey(), requestId);
+    }
+
+    public ContextSnapshot.Scope restoreMdc(ContextView contextView) {
+        if (!mdcConfiguration.getEnable() || !contextView.hasKey(mdcConfiguration.getKey())) {
+            return NOOP_SCOPE;
+        }
+        return contextSnapshotFactory.setThreadLocalsFrom(contextView, mdcConfiguration.getKey());
+    }
+}
@@ -0,0 +1,151 @@
+package zxf.trace.reactive;
+
+import io.micrometer.context.ContextSnapshot;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import reactor.util.context.ContextView;
+import zxf.trace.record.AsyncTraceConfiguration;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves building the trace records of finished exchanges, which copies captured bodies out of their
+ * retained buffers, off the reactor-netty event loop onto a small dedicated scheduler with a bounded
+ * queue. The records are then masked, rendered and appended by the shared trace dispatcher.
+ * <p>
+ * Drop policy when the queue is full: successful exchanges are discarded and counted, error
+ * exchanges are still written, on the calling thread, so they are never lost. A saturated
+ * scheduler therefore only ever costs the event loop for failing exchanges.
+ * <p>
+ * With {@code trace.async.enable=false} exchanges are written on the calling thread. On shutdown
+ * queued exchanges are still written, those left after the grace period are discarded.
+ */
+@Slf4j
+@ManagedResource(objectName = "zxf.trace:name=TraceLoggingScheduler", description = "WebFlux trace logging scheduler")
+public class TraceLoggingScheduler {
+    @Autowired
+    private RequestIdContext requestIdContext;
+    @Autowired
+    private AsyncTraceConfiguration asyncTraceConfiguration;
+
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder inlineWrittenCount = new LongAdder();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        if (!asyncTraceConfiguration.getEnable()) {
+            return;
+        }
+        int threads = asyncTraceConfiguration.getThreads();
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(asyncTraceConfiguration.getQueueCapacity()), runnable -> {
+            Thread thread = new Thread(runnable, "trace-logging-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        // Queued exchanges are written before the executor terminates, only a stuck appender leaves some behind
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            List<Runnable> pending = executor.shutdownNow();
+            log.warn("Trace logging scheduler did not drain in time, {} exchanges discarded", pending.size());
+            for (Runnable task : pending) {
+                ((TraceTask) task).discard.run();
+            }
+        }
+    }
+
+    public void schedule(boolean error, ContextView contextView, Runnable write) {
+        schedule(error, contextView, write, () -> {
+        });
+    }
+
+    /**
+     * @param error       whether the exchange failed, which decides the drop policy
+     * @param contextView Reactor context of the exchange, its request id is put in the MDC while writing
+     * @param write       renders and appends the exchange
+     * @param discard     frees whatever the exchange still holds when it is dropped
+     */
+    public void schedule(boolean error, ContextView contextView, Runnable write, Runnable discard) {
+        if (executor == null) {
+            run(contextView, write);
+            return;
+        }
+        try {
+            executor.execute(new TraceTask(contextView, write, discard));
+        } catch (RejectedExecutionException ex) {
+            if (error) {
+                inlineWrittenCount.increment();
+                run(contextView, write);
+            } else {
+                droppedCount.increment();
+                discard.run();
+            }
+        }
+    }
+
+    private void run(ContextView contextView, Runnable write) {
+        try (ContextSnapshot.Scope scope = requestIdContext.restoreMdc(contextView)) {
+            write.run();
+        } catch (Throwable ex) {
+            log.error("Exception when write trace", ex);
+        }
+    }
+
+    @ManagedAttribute(description = "Finished exchanges waiting to be logged")
+    public int getQueueDepth() {
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+
+    @ManagedAttribute(description = "Maximum number of queued exchanges")
+    public int getQueueCapacity() {
+        return asyncTraceConfiguration.getQueueCapacity();
+    }
+
+    @ManagedAttribute(description = "Successful exchanges dropped because the queue was full")
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    @ManagedAttribute(description = "Error exchanges logged on the event loop because the queue was full")
+    public long getInlineWrittenCount() {
+        return inlineWrittenCount.sum();
+    }
+
+    /**
+     * Keeps the discard of a queued exchange, so it can still be freed when the executor is shut down.
+     */
+    private class TraceTask implements Runnable {
+        private final ContextView contextView;
+        private final Runnable write;
+        private final Runnable discard;
+
+        private TraceTask(ContextView contextView, Runnable write, Runnable discard) {
+            this.contextView = contextView;
+            this.write = write;
+            this.discard = discard;
+        }
+
+        @Override
+        public void run() {
+            TraceLoggingScheduler.this.run(contextView, write);
+        }
+    }
+}
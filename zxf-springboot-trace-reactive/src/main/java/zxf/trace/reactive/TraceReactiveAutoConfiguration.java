@@ -0,0 +1,61 @@
+package zxf.trace.reactive;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import zxf.trace.OutboundLoggingInterceptor;
+import zxf.trace.TraceAutoConfiguration;
+import zxf.trace.capture.CapturePolicy;
+import zxf.trace.metrics.TraceMetrics;
+import zxf.trace.reactive.inbound.InboundLoggingFilter;
+import zxf.trace.reactive.outbound.OutboundExchangeFilter;
+import zxf.trace.record.TraceRecordDispatcher;
+import zxf.trace.route.RoutePolicyResolver;
+import zxf.trace.sampling.TraceSampler;
+
+/**
+ * Reactive adapter of the trace core. It lives in its own module, so servlet applications never
+ * see it, and is only evaluated in reactive web applications; the servlet adapter is its counterpart.
+ */
+@AutoConfiguration(after = TraceAutoConfiguration.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class TraceReactiveAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RequestIdContext requestIdContext() {
+        return new RequestIdContext();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TraceLoggingScheduler traceLoggingScheduler() {
+        return new TraceLoggingScheduler();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public InboundLoggingFilter inboundLoggingFilter(TraceRecordDispatcher traceRecordDispatcher, CapturePolicy capturePolicy,
+                                                     TraceLoggingScheduler traceLoggingScheduler, RequestIdContext requestIdContext,
+                                                     TraceSampler traceSampler, TraceMetrics traceMetrics, RoutePolicyResolver routePolicyResolver) {
+        return new InboundLoggingFilter(traceRecordDispatcher, capturePolicy, traceLoggingScheduler, requestIdContext,
+                traceSampler, traceMetrics, routePolicyResolver);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public OutboundExchangeFilter outboundExchangeFilter(OutboundLoggingInterceptor outboundLoggingInterceptor, TraceLoggingScheduler traceLoggingScheduler,
+                                                         CapturePolicy capturePolicy) {
+        return new OutboundExchangeFilter(outboundLoggingInterceptor, traceLoggingScheduler, capturePolicy);
+    }
+
+    /**
+     * Every WebClient.Builder handed out by Spring Boot traces its exchanges.
+     */
+    @Bean
+    public WebClientCustomizer traceWebClientCustomizer(OutboundExchangeFilter outboundExchangeFilter) {
+        return webClientBuilder -> webClientBuilder.filter(outboundExchangeFilter);
+    }
+}
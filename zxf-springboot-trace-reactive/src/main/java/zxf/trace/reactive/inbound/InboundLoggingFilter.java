@@ -0,0 +1,67 @@
+package zxf.trace.reactive.inbound;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.util.context.Context;
+import zxf.trace.capture.CapturePolicy;
+import zxf.trace.metrics.TraceMeter;
+import zxf.trace.metrics.TraceMetrics;
+import zxf.trace.reactive.RequestIdContext;
+import zxf.trace.reactive.TraceLoggingScheduler;
+import zxf.trace.record.TraceRecord;
+import zxf.trace.record.TraceRecordDispatcher;
+import zxf.trace.route.RoutePolicy;
+import zxf.trace.route.RoutePolicyResolver;
+import zxf.trace.sampling.SamplingDecision;
+import zxf.trace.sampling.TraceSampler;
+
+
+@Slf4j
+@RequiredArgsConstructor
+public class InboundLoggingFilter implements WebFilter {
+
+    private final TraceRecordDispatcher traceRecordDispatcher;
+    private final CapturePolicy capturePolicy;
+    private final TraceLoggingScheduler traceLoggingScheduler;
+    private final RequestIdContext requestIdContext;
+    private final TraceSampler traceSampler;
+    private final TraceMetrics traceMetrics;
+    private final RoutePolicyResolver routePolicyResolver;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        // The request id rides in the Reactor context, so outbound calls made by the handler see it too
+        Context context = requestIdContext.contextOf(exchange.getRequest());
+        RoutePolicy routePolicy = routePolicyResolver.inbound(exchange.getRequest().getPath().pathWithinApplication().value());
+        if (!routePolicy.isTraced()) {
+            return chain.filter(exchange).contextWrite(context);
+        }
+
+        // Sampling is decided before wrapping, lazily once the route is known, so capture and logging agree
+        SamplingDecision samplingDecision = traceSampler.decide(() -> routeOf(exchange), routePolicy);
+        LoggingWebExchange loggingWebExchange = new LoggingWebExchange(exchange, capturePolicy, routePolicy, samplingDecision);
+        // Bodies are copied out on the trace logging scheduler, rendering and appending on the trace dispatcher, never on the event loop
+        return chain.filter(loggingWebExchange).doFinally((signalType) -> {
+            boolean isError = loggingWebExchange.isError();
+            TraceMeter meter = traceMetrics.meter(TraceRecord.Direction.INBOUND, routeOf(exchange));
+            loggingWebExchange.complete(meter);
+            if (!isError && !samplingDecision.isSampled()) {
+                meter.skipped();
+                loggingWebExchange.release();
+                return;
+            }
+            traceLoggingScheduler.schedule(isError, context, () -> loggingWebExchange.log(meter, traceRecordDispatcher), loggingWebExchange::release);
+        }).contextWrite(context);
+    }
+
+    private String routeOf(ServerWebExchange exchange) {
+        PathPattern bestMatchingPattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return bestMatchingPattern != null ? bestMatchingPattern.getPatternString() : TraceMetrics.UNMATCHED_ROUTE;
+    }
+}
@@ -0,0 +1,55 @@
+package zxf.trace.reactive.inbound;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import reactor.core.publisher.Flux;
+import zxf.trace.capture.CapturedBody;
+import zxf.trace.metrics.TraceMeter;
+import zxf.trace.reactive.DataBufferCapture;
+import zxf.trace.record.TraceHeaders;
+import zxf.trace.record.TraceRecord;
+
+import java.net.URI;
+
+public class LoggingRequestDecorator extends ServerHttpRequestDecorator {
+    private String url;
+    private String method;
+    private HttpHeaders headers;
+    private final DataBufferCapture bodyCapture;
+
+    public LoggingRequestDecorator(ServerHttpRequest delegate, int maxBodyBytes) {
+        super(delegate);
+        URI uri = delegate.getURI();
+        url = uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + "?" + uri.getRawQuery();
+        method = delegate.getMethod().toString();
+        headers = delegate.getHeaders();
+        bodyCapture = new DataBufferCapture(maxBodyBytes);
+    }
+
+    @Override
+    public Flux<DataBuffer> getBody() {
+        return bodyCapture.isEnabled() ? super.getBody().doOnNext(bodyCapture::capture) : super.getBody();
+    }
+
+    /**
+     * Adds the request half of the exchange to its trace record, headers are referenced and masked when rendered.
+     */
+    public TraceRecord.TraceRecordBuilder describe(TraceRecord.TraceRecordBuilder record, TraceMeter meter) {
+        CapturedBody body = bodyCapture.toCapturedBody(headers, meter);
+        meter.body(body);
+        String contentType = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+        return record.url(url)
+                .method(method)
+                .requestHeaders(TraceHeaders.of(headers))
+                .requestContentType(contentType)
+                .requestCharset(LoggingWebExchange.toCharset(contentType))
+                .requestBody(body);
+    }
+
+    public void release() {
+        bodyCapture.release();
+    }
+
+}
@@ -0,0 +1,76 @@
+package zxf.trace.reactive.inbound;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import zxf.trace.capture.CapturedBody;
+import zxf.trace.metrics.TraceMeter;
+import zxf.trace.reactive.DataBufferCapture;
+import zxf.trace.record.TraceHeaders;
+import zxf.trace.record.TraceRecord;
+
+import java.util.function.ToIntFunction;
+
+public class LoggingResponseDecorator extends ServerHttpResponseDecorator {
+    private final ToIntFunction<HttpHeaders> captureLimit;
+    // Created on the first write, once the handler has set the response headers
+    private volatile DataBufferCapture bodyCapture;
+
+    public LoggingResponseDecorator(ServerHttpResponse delegate, int maxBodyBytes) {
+        this(delegate, headers -> maxBodyBytes);
+    }
+
+    public LoggingResponseDecorator(ServerHttpResponse delegate, ToIntFunction<HttpHeaders> captureLimit) {
+        super(delegate);
+        this.captureLimit = captureLimit;
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        DataBufferCapture capture = bodyCapture();
+        return super.writeWith(capture.isEnabled() ? Flux.from(body).doOnNext(capture::capture) : body);
+    }
+
+    @Override
+    public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        DataBufferCapture capture = bodyCapture();
+        return super.writeAndFlushWith(capture.isEnabled() ? Flux.from(body).map(chunk -> Flux.from(chunk).doOnNext(capture::capture)) : body);
+    }
+
+    private DataBufferCapture bodyCapture() {
+        if (bodyCapture == null) {
+            bodyCapture = new DataBufferCapture(captureLimit.applyAsInt(getHeaders()));
+        }
+        return bodyCapture;
+    }
+
+    /**
+     * Adds the response half of the exchange to its trace record, headers are referenced and masked when rendered.
+     */
+    public TraceRecord.TraceRecordBuilder describe(TraceRecord.TraceRecordBuilder record, TraceMeter meter) {
+        HttpStatusCode statusCode = getStatusCode();
+        HttpHeaders headers = getHeaders();
+        DataBufferCapture capture = bodyCapture;
+        // Nothing was written when there is no capture yet
+        CapturedBody body = capture == null ? CapturedBody.of(null, 0) : capture.toCapturedBody(headers, meter);
+        meter.body(body);
+        String contentType = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+        return record.statusCode(statusCode == null ? null : statusCode.value())
+                .responseHeaders(TraceHeaders.of(headers))
+                .responseContentType(contentType)
+                .responseCharset(LoggingWebExchange.toCharset(contentType))
+                .responseBody(body);
+    }
+
+    public void release() {
+        DataBufferCapture capture = bodyCapture;
+        if (capture != null) {
+            capture.release();
+        }
+    }
+}
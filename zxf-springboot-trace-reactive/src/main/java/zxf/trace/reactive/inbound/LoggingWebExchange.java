@@ -0,0 +1,116 @@
+package zxf.trace.reactive.inbound;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.publisher.Mono;
+import zxf.trace.capture.CapturePolicy;
+import zxf.trace.metrics.TraceMeter;
+import zxf.trace.record.TraceRecord;
+import zxf.trace.record.TraceRecordDispatcher;
+import zxf.trace.route.RoutePolicy;
+import zxf.trace.sampling.SamplingDecision;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+@Slf4j
+public class LoggingWebExchange extends ServerWebExchangeDecorator {
+    private final LoggingRequestDecorator loggingRequestDecorator;
+    private final LoggingResponseDecorator loggingResponseDecorator;
+    private final RoutePolicy routePolicy;
+    private final long startNanos = System.nanoTime();
+    private volatile long committedNanos;
+    private long durationNanos;
+
+    protected LoggingWebExchange(ServerWebExchange delegate, CapturePolicy capturePolicy, RoutePolicy routePolicy, SamplingDecision samplingDecision) {
+        super(delegate);
+        this.routePolicy = routePolicy;
+        this.loggingRequestDecorator = new LoggingRequestDecorator(delegate.getRequest(), capturePolicy.inboundLimit(routePolicy, delegate.getRequest().getHeaders()));
+        // Successful exchanges which are not sampled skip response body capture entirely
+        this.loggingResponseDecorator = new LoggingResponseDecorator(delegate.getResponse(), headers -> isError() || samplingDecision.isSampled()
+                ? capturePolicy.inboundLimit(routePolicy, headers) : 0);
+        this.loggingResponseDecorator.beforeCommit(() -> {
+            committedNanos = System.nanoTime();
+            return Mono.empty();
+        });
+    }
+
+    @Override
+    public ServerHttpRequest getRequest() {
+        return loggingRequestDecorator;
+    }
+
+    public ServerHttpResponse getResponse() {
+        return loggingResponseDecorator;
+    }
+
+    public boolean isError() {
+        HttpStatusCode statusCode = loggingResponseDecorator.getStatusCode();
+        return statusCode == null || statusCode.isError();
+    }
+
+    /**
+     * Ends the exchange clock and records its latency, for every exchange whether it is logged or not.
+     */
+    public void complete(TraceMeter meter) {
+        durationNanos = System.nanoTime() - startNanos;
+        long committed = committedNanos;
+        meter.responseStarted(committed == 0 ? durationNanos : committed - startNanos);
+        meter.completed(durationNanos);
+    }
+
+    /**
+     * Builds the trace record of the finished exchange and hands it to the dispatcher, which masks,
+     * renders and appends it like any other record. Runs on the trace logging scheduler with the
+     * request id of the exchange in the MDC.
+     */
+    public void log(TraceMeter meter, TraceRecordDispatcher traceRecordDispatcher) {
+        try {
+            boolean isError = isError();
+            if (!log.isEnabledForLevel(routePolicy.level(isError))) {
+                meter.skipped();
+                return;
+            }
+
+            TraceRecord.TraceRecordBuilder record = TraceRecord.builder()
+                    .logger(log)
+                    .direction(TraceRecord.Direction.INBOUND)
+                    .error(isError)
+                    .durationNanos(durationNanos)
+                    .mdcContext(MDC.getCopyOfContextMap())
+                    .meter(meter)
+                    .routePolicy(routePolicy);
+            loggingRequestDecorator.describe(record, meter);
+            loggingResponseDecorator.describe(record, meter);
+            traceRecordDispatcher.dispatch(record.createdNanos(System.nanoTime()).build());
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Captured bodies hold retained buffers, hand them back whether the exchange was logged or not.
+     */
+    public void release() {
+        loggingRequestDecorator.release();
+        loggingResponseDecorator.release();
+    }
+
+    /**
+     * Charset the captured body is decoded with, UTF-8 unless the content type names a valid one.
+     */
+    static Charset toCharset(String contentType) {
+        try {
+            MediaType mediaType = contentType == null ? null : MediaType.parseMediaType(contentType);
+            return mediaType == null || mediaType.getCharset() == null ? StandardCharsets.UTF_8 : mediaType.getCharset();
+        } catch (IllegalArgumentException ex) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+}
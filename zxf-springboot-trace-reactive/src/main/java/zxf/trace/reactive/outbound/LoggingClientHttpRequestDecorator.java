@@ -0,0 +1,47 @@
+package zxf.trace.reactive.outbound;
+
+import org.reactivestreams.Publisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import zxf.trace.capture.CaptureBuffer;
+import zxf.trace.capture.CapturePolicy;
+import zxf.trace.capture.CapturedBody;
+import zxf.trace.route.RoutePolicy;
+
+public class LoggingClientHttpRequestDecorator extends ClientHttpRequestDecorator {
+    private final RequestCapture bodyCapture;  // Uses RequestCapture for requests
+    private final CapturePolicy capturePolicy;
+    private final RoutePolicy routePolicy;
+
+    public LoggingClientHttpRequestDecorator(ClientHttpRequest delegate, RequestCapture bodyCapture, CapturePolicy capturePolicy, RoutePolicy routePolicy) {
+        super(delegate);
+        this.bodyCapture = bodyCapture;
+        this.capturePolicy = capturePolicy;
+        this.routePolicy = routePolicy;
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        // The encoder has set Content-Type and, when known, Content-Length by now
+        HttpHeaders headers = getHeaders();
+        bodyCapture.setHeaders(headers);
+        int limit = capturePolicy.outboundLimit(routePolicy, headers);
+        if (limit == 0) {
+            bodyCapture.setBody(CapturedBody.notCaptured(headers.getContentLength()));
+            return super.writeWith(body);
+        }
+
+        CaptureBuffer captureBuffer = new CaptureBuffer(limit, headers.getContentLength());
+        return super.writeWith(Flux.from(body)
+                .doOnNext(dataBuffer -> {
+                    try (DataBuffer.ByteBufferIterator byteBuffers = dataBuffer.readableByteBuffers()) {
+                        byteBuffers.forEachRemaining(captureBuffer::write);
+                    }
+                })
+                .doFinally(signalType -> bodyCapture.setBody(captureBuffer.toCapturedBody())));
+    }
+}
@@ -0,0 +1,146 @@
+package zxf.trace.reactive.outbound;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+import zxf.trace.OutboundLoggingInterceptor;
+import zxf.trace.capture.CaptureBuffer;
+import zxf.trace.capture.CapturePolicy;
+import zxf.trace.capture.CapturedBody;
+import zxf.trace.metrics.TraceMeter;
+import zxf.trace.reactive.TraceLoggingScheduler;
+import zxf.trace.route.RoutePolicy;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * WebClient side of outbound tracing. Bodies are captured as they flow, the trace record is built
+ * by {@link OutboundLoggingInterceptor}, the same as for blocking clients, on the trace logging scheduler.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class OutboundExchangeFilter implements ExchangeFilterFunction {
+
+    private final OutboundLoggingInterceptor outboundLoggingInterceptor;
+    private final TraceLoggingScheduler traceLoggingScheduler;
+    private final CapturePolicy capturePolicy;
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        URI url = request.url();
+        RoutePolicy routePolicy = outboundLoggingInterceptor.routePolicyOf(url);
+        if (!routePolicy.isTraced()) {
+            return next.exchange(request);
+        }
+
+        long startNanos = System.nanoTime();
+        TraceMeter meter = outboundLoggingInterceptor.meterOf(url);
+
+        // Initialize capture objects
+        RequestCapture requestCapture = new RequestCapture();
+        ResponseCapture responseCapture = new ResponseCapture();
+
+        // Populate basic request metadata, headers are only referenced and masked when the record is rendered
+        requestCapture.setUrl(url);
+        requestCapture.setMethod(request.method().name());
+        requestCapture.setHeaders(request.headers());
+
+        // Sampled before anything is decorated: unsampled exchanges capture no request body and are only logged when they fail
+        boolean sampled = outboundLoggingInterceptor.sample(url, routePolicy);
+        ClientRequest newRequest = !sampled ? request : ClientRequest.from(request)
+            .body((outputMessage, context) ->
+                request.body().insert(new LoggingClientHttpRequestDecorator(outputMessage, requestCapture, capturePolicy, routePolicy), context)
+            ).build();
+
+        // The caller's request id is read from the Reactor context, so outbound records are correlated without extra wiring
+        AtomicBoolean responded = new AtomicBoolean();
+        return Mono.deferContextual(contextView -> next.exchange(newRequest)
+            .flatMap(response -> {
+                responded.set(true);
+                meter.responseStarted(System.nanoTime() - startNanos);
+
+                // Populate basic response metadata
+                HttpHeaders responseHeaders = response.headers().asHttpHeaders();
+                responseCapture.setStatus(response.statusCode());
+                responseCapture.setHeaders(responseHeaders);
+
+                // Capture at most the policy's limit of the response body, binary and streaming bodies are not touched
+                boolean traced = sampled || response.statusCode().isError();
+                int limit = traced ? capturePolicy.outboundLimit(routePolicy, responseHeaders) : 0;
+                CaptureBuffer captureBuffer = limit > 0 ? new CaptureBuffer(limit, responseHeaders.getContentLength()) : null;
+                Flux<DataBuffer> loggedBody = response.bodyToFlux(DataBuffer.class);
+                if (captureBuffer != null) {
+                    loggedBody = loggedBody.doOnNext(dataBuffer -> {
+                        long captureStartNanos = meter.start();
+                        try (DataBuffer.ByteBufferIterator byteBuffers = dataBuffer.readableByteBuffers()) {
+                            byteBuffers.forEachRemaining(captureBuffer::write);
+                        }
+                        meter.captured(captureStartNanos);
+                    });
+                }
+                // The exchange is complete, and logged, once the caller has consumed or released the body
+                loggedBody = loggedBody.doFinally(signalType -> {
+                    long durationNanos = System.nanoTime() - startNanos;
+                    meter.completed(durationNanos);
+                    if (!traced) {
+                        meter.skipped();
+                        return;
+                    }
+                    responseCapture.setBody(captureBuffer != null ? captureBuffer.toCapturedBody() : CapturedBody.notCaptured(responseHeaders.getContentLength()));
+                    log(requestCapture, responseCapture, durationNanos, null, routePolicy, sampled, contextView);
+                });
+
+                // Build decorated response
+                ClientResponse decoratedResponse = ClientResponse.from(response)
+                    .body(loggedBody)
+                    .build();
+
+                return Mono.just(decoratedResponse);
+            })
+            .doOnError(throwable -> log(requestCapture, null, System.nanoTime() - startNanos, throwable, routePolicy, sampled, contextView))
+            .doOnCancel(() -> {
+                if (!responded.get()) {
+                    log(requestCapture, null, System.nanoTime() - startNanos, null, routePolicy, sampled, contextView);
+                }
+            }));
+    }
+
+    private void log(RequestCapture requestCapture, ResponseCapture responseCapture, long durationNanos, Throwable throwable,
+                     RoutePolicy routePolicy, boolean sampled, ContextView contextView) {
+        // Building the record happens on the trace logging scheduler, masking and appending on the trace dispatcher
+        traceLoggingScheduler.schedule(isError(responseCapture), contextView, () -> {
+            if (throwable != null) {
+                log.error("Exception when send request", throwable);
+            }
+            outboundLoggingInterceptor.logRequestAndResponse(requestCapture.getUrl(), routePolicy, requestCapture.getMethod(), requestCapture.getHeaders(),
+                    requestBodyOf(requestCapture, sampled),
+                    responseCapture == null ? null : responseCapture.getStatus(),
+                    responseCapture == null ? null : responseCapture.getHeaders(),
+                    responseCapture == null ? null : responseCapture.getBody(), durationNanos);
+        });
+    }
+
+    /**
+     * The body of an unsampled request was not decorated, the body of a sampled one is {@code null} when none was written.
+     */
+    private CapturedBody requestBodyOf(RequestCapture requestCapture, boolean sampled) {
+        CapturedBody body = requestCapture.getBody();
+        if (body != null) {
+            return body;
+        }
+        return sampled ? CapturedBody.of(null, 0) : CapturedBody.notCaptured(requestCapture.getHeaders().getContentLength());
+    }
+
+    private boolean isError(ResponseCapture responseCapture) {
+        return responseCapture == null || responseCapture.getStatus().isError();
+    }
+}
@@ -0,0 +1,25 @@
+package zxf.trace.reactive.outbound;
+
+import lombok.Data;
+import org.springframework.http.HttpHeaders;
+import zxf.trace.capture.CapturedBody;
+
+import java.net.URI;
+
+/**
+ * 用于捕获请求/响应体的接口
+ */
+
+@Data
+public class RequestCapture {
+    private volatile URI url;
+    private volatile String method;
+    /**
+     * Referenced, not copied: the request headers first, replaced by the headers the body was written with.
+     */
+    private volatile HttpHeaders headers;
+    /**
+     * {@code null} until the body was written, and for requests without one.
+     */
+    private volatile CapturedBody body;
+}
@@ -0,0 +1,13 @@
+package zxf.trace.reactive.outbound;
+
+import lombok.Data;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import zxf.trace.capture.CapturedBody;
+
+@Data
+public class ResponseCapture {
+    private volatile HttpStatusCode status;
+    private volatile HttpHeaders headers;
+    private volatile CapturedBody body;
+}
@@ -0,0 +1,83 @@
+package zxf.trace.reactive;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataBufferCaptureTest {
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(new UnpooledByteBufAllocator(true));
+
+    @Test
+    void retainsBuffersWhichFitTheBoundUntilReleased() {
+        DataBufferCapture capture = new DataBufferCapture(64);
+        NettyDataBuffer first = buffer("{\"id\":", 16);
+        NettyDataBuffer second = buffer("1}", 16);
+
+        capture.capture(first);
+        capture.capture(second);
+
+        assertThat(first.getNativeBuffer().refCnt()).isEqualTo(2);
+        assertThat(second.getNativeBuffer().refCnt()).isEqualTo(2);
+        assertThat(captured(capture)).isEqualTo("{\"id\":1}");
+        capture.release();
+        assertThat(first.getNativeBuffer().refCnt()).isEqualTo(1);
+        assertThat(second.getNativeBuffer().refCnt()).isEqualTo(1);
+    }
+
+    @Test
+    void copiesTheWindowOfBuffersLargerThanTheBound() {
+        DataBufferCapture capture = new DataBufferCapture(64);
+        NettyDataBuffer oversized = buffer("{\"id\":1}", 64 * 1024);
+
+        capture.capture(oversized);
+
+        // Retaining it would pin 64 KiB for the 8 bytes captured
+        assertThat(oversized.getNativeBuffer().refCnt()).isEqualTo(1);
+        oversized.getNativeBuffer().setByte(0, '[');
+        assertThat(captured(capture)).isEqualTo("{\"id\":1}");
+        capture.release();
+    }
+
+    @Test
+    void copiesOnceRetainedBuffersWouldPinMoreThanTheBound() {
+        DataBufferCapture capture = new DataBufferCapture(64);
+        NettyDataBuffer first = buffer("0123", 48);
+        NettyDataBuffer second = buffer("4567", 48);
+
+        capture.capture(first);
+        capture.capture(second);
+
+        assertThat(first.getNativeBuffer().refCnt()).isEqualTo(2);
+        assertThat(second.getNativeBuffer().refCnt()).isEqualTo(1);
+        assertThat(captured(capture)).isEqualTo("01234567");
+        capture.release();
+        assertThat(first.getNativeBuffer().refCnt()).isEqualTo(1);
+    }
+
+    @Test
+    void retainsNothingOnceReleased() {
+        DataBufferCapture capture = new DataBufferCapture(64);
+        capture.release();
+        NettyDataBuffer late = buffer("{}", 16);
+
+        capture.capture(late);
+
+        assertThat(late.getNativeBuffer().refCnt()).isEqualTo(1);
+        assertThat(capture.getTotalLength()).isEqualTo(2);
+    }
+
+    private NettyDataBuffer buffer(String content, int capacity) {
+        NettyDataBuffer buffer = bufferFactory.allocateBuffer(capacity);
+        buffer.write(content.getBytes(StandardCharsets.UTF_8));
+        return buffer;
+    }
+
+    private static String captured(DataBufferCapture capture) {
+        return new String(capture.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,124 @@
+package zxf.trace.reactive;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import reactor.util.context.Context;
+import zxf.trace.mdc.MDCConfiguration;
+import zxf.trace.record.AsyncTraceConfiguration;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceLoggingSchedulerTest {
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+    private final List<String> written = new CopyOnWriteArrayList<>();
+    private final List<String> discarded = new CopyOnWriteArrayList<>();
+    private AnnotationConfigApplicationContext context;
+    private TraceLoggingScheduler traceLoggingScheduler;
+
+    @AfterEach
+    void tearDown() {
+        released.countDown();
+        context.close();
+    }
+
+    @Test
+    void writesOffTheCallingThreadWithTheRequestIdInTheMdc() throws Exception {
+        start(true, 8);
+
+        traceLoggingScheduler.schedule(false, Context.of("ReqId", "req-1"), () -> written.add(Thread.currentThread().getName() + ":" + MDC.get("ReqId")));
+        traceLoggingScheduler.stop();
+
+        assertThat(written).containsExactly("trace-logging-1:req-1");
+    }
+
+    @Test
+    void dropsSuccessesAndWritesErrorsInlineWhenTheQueueIsFull() throws Exception {
+        start(true, 1);
+        traceLoggingScheduler.schedule(false, Context.empty(), blocking("in-progress"));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        traceLoggingScheduler.schedule(false, Context.empty(), write("queued"), discard("queued"));
+        traceLoggingScheduler.schedule(false, Context.empty(), write("dropped"), discard("dropped"));
+        traceLoggingScheduler.schedule(true, Context.empty(), write("error"), discard("error"));
+
+        assertThat(traceLoggingScheduler.getQueueDepth()).isEqualTo(1);
+        assertThat(traceLoggingScheduler.getDroppedCount()).isEqualTo(1);
+        assertThat(traceLoggingScheduler.getInlineWrittenCount()).isEqualTo(1);
+        assertThat(discarded).containsExactly("dropped");
+        assertThat(written).containsExactly("error@" + Thread.currentThread().getName());
+
+        released.countDown();
+        traceLoggingScheduler.stop();
+        assertThat(written).containsExactly("error@" + Thread.currentThread().getName(), "in-progress", "queued@trace-logging-1");
+        assertThat(discarded).containsExactly("dropped");
+    }
+
+    @Test
+    void discardsWhatIsStillQueuedAfterTheGracePeriod() throws Exception {
+        start(true, 8);
+        traceLoggingScheduler.schedule(false, Context.empty(), blocking("stuck"));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        traceLoggingScheduler.schedule(false, Context.empty(), write("queued"), discard("queued"));
+
+        traceLoggingScheduler.stop();
+
+        assertThat(discarded).containsExactly("queued");
+        assertThat(written).doesNotContain("queued@trace-logging-1");
+    }
+
+    @Test
+    void writesOnTheCallingThreadWhenDisabled() {
+        start(false, 8);
+
+        traceLoggingScheduler.schedule(false, Context.empty(), write("inline"), discard("inline"));
+
+        assertThat(written).containsExactly("inline@" + Thread.currentThread().getName());
+        assertThat(discarded).isEmpty();
+        assertThat(traceLoggingScheduler.getQueueDepth()).isZero();
+    }
+
+    private void start(boolean enable, int queueCapacity) {
+        AsyncTraceConfiguration asyncTraceConfiguration = new AsyncTraceConfiguration();
+        asyncTraceConfiguration.setEnable(enable);
+        asyncTraceConfiguration.setQueueCapacity(queueCapacity);
+        MDCConfiguration mdcConfiguration = new MDCConfiguration();
+        mdcConfiguration.setEnable(true);
+        mdcConfiguration.setKey("ReqId");
+
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("asyncTraceConfiguration", asyncTraceConfiguration);
+        context.getBeanFactory().registerSingleton("mdcConfiguration", mdcConfiguration);
+        context.register(RequestIdContext.class, TraceLoggingScheduler.class);
+        context.refresh();
+        traceLoggingScheduler = context.getBean(TraceLoggingScheduler.class);
+    }
+
+    private Runnable blocking(String name) {
+        return () -> {
+            writing.countDown();
+            try {
+                // Long enough to outlast the grace period of stop when never released
+                released.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            written.add(name);
+        };
+    }
+
+    private Runnable write(String name) {
+        return () -> written.add(name + "@" + Thread.currentThread().getName());
+    }
+
+    private Runnable discard(String name) {
+        return () -> discarded.add(name);
+    }
+}
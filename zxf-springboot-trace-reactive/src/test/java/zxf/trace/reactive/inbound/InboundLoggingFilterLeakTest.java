@@ -0,0 +1,132 @@
+package zxf.trace.reactive.inbound;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import zxf.trace.TraceAutoConfiguration;
+import zxf.trace.reactive.RequestIdContext;
+import zxf.trace.reactive.TraceLoggingScheduler;
+import zxf.trace.record.TraceRecord;
+import zxf.trace.record.TraceRecordWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Every buffer the capture retains must be handed back however the exchange ends, the test buffers are
+ * reference counted like the ones of reactor-netty and must all be freed once the server wrote them.
+ */
+class InboundLoggingFilterLeakTest {
+    private static final int MAX_BODY_BYTES = 1024;
+
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(new UnpooledByteBufAllocator(true));
+    private final List<NettyDataBuffer> allocated = new CopyOnWriteArrayList<>();
+    private final List<TraceRecord> records = new CopyOnWriteArrayList<>();
+    private AnnotationConfigApplicationContext context;
+    private InboundLoggingFilter filter;
+
+    @BeforeEach
+    void start() {
+        context = new AnnotationConfigApplicationContext();
+        TestPropertyValues.of("trace.async.enable=false", "trace.capture.max-body-bytes=" + MAX_BODY_BYTES).applyTo(context);
+        context.getBeanFactory().registerSingleton("traceRecordWriter", new TraceRecordWriter() {
+            @Override
+            public void write(TraceRecord record) {
+                records.add(record);
+            }
+        });
+        context.register(TraceAutoConfiguration.class, RequestIdContext.class, TraceLoggingScheduler.class, InboundLoggingFilter.class);
+        context.refresh();
+        filter = context.getBean(InboundLoggingFilter.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void releasesEveryBufferOnComplete() {
+        MockServerWebExchange exchange = exchange();
+
+        filter.filter(exchange, respondWith(Flux.just(buffer("{\"ok\":", 64), buffer("true}", 4 * MAX_BODY_BYTES)))).block();
+
+        assertThat(records).hasSize(1);
+        assertThat(new String(records.get(0).getRequestBody().content(), StandardCharsets.UTF_8)).isEqualTo("{\"task\":1}");
+        assertThat(new String(records.get(0).getResponseBody().content(), StandardCharsets.UTF_8)).isEqualTo("{\"ok\":true}");
+        assertAllReleased();
+    }
+
+    @Test
+    void releasesEveryBufferOnError() {
+        MockServerWebExchange exchange = exchange();
+        Flux<DataBuffer> body = Flux.concat(Flux.just(buffer("{\"ok\":", 64)), Flux.error(new IllegalStateException("broken")));
+
+        assertThatThrownBy(() -> filter.filter(exchange, respondWith(body)).block()).hasMessageContaining("broken");
+
+        assertThat(records).hasSize(1);
+        assertThat(records.get(0).isError()).isTrue();
+        assertAllReleased();
+    }
+
+    @Test
+    void releasesEveryBufferOnCancel() {
+        MockServerWebExchange exchange = exchange();
+        Flux<DataBuffer> body = Flux.concat(Flux.just(buffer("{\"ok\":", 64), buffer("true", 4 * MAX_BODY_BYTES)), Flux.never());
+
+        Disposable subscription = filter.filter(exchange, respondWith(body)).subscribe();
+        assertThat(allocated).anyMatch(buffer -> buffer.getNativeBuffer().refCnt() > 0);
+        subscription.dispose();
+
+        assertThat(records).hasSize(1);
+        assertAllReleased();
+    }
+
+    private MockServerWebExchange exchange() {
+        MockServerHttpRequest request = MockServerHttpRequest.post("/tasks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Flux.just(buffer("{\"task\":", 16), buffer("1}", 16)));
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        // Like the server, frees each buffer once written
+        exchange.getResponse().setWriteHandler(body -> body.doOnNext(DataBufferUtils::release).then());
+        return exchange;
+    }
+
+    private static WebFilterChain respondWith(Flux<DataBuffer> body) {
+        return exchange -> exchange.getRequest().getBody()
+                .doOnNext(DataBufferUtils::release)
+                .then(Mono.defer(() -> {
+                    exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                    return exchange.getResponse().writeWith(body);
+                }));
+    }
+
+    private NettyDataBuffer buffer(String content, int capacity) {
+        NettyDataBuffer buffer = bufferFactory.allocateBuffer(capacity);
+        buffer.write(content.getBytes(StandardCharsets.UTF_8));
+        allocated.add(buffer);
+        return buffer;
+    }
+
+    private void assertAllReleased() {
+        assertThat(allocated).isNotEmpty().allSatisfy(buffer -> assertThat(buffer.getNativeBuffer().refCnt()).isZero());
+    }
+}
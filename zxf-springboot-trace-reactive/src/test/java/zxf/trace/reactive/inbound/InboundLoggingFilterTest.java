@@ -0,0 +1,90 @@
+package zxf.trace.reactive.inbound;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import zxf.trace.TraceAutoConfiguration;
+import zxf.trace.reactive.RequestIdContext;
+import zxf.trace.reactive.TraceLoggingScheduler;
+import zxf.trace.record.TraceRecord;
+import zxf.trace.record.TraceRecordWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+class InboundLoggingFilterTest {
+    private final List<TraceRecord> records = new CopyOnWriteArrayList<>();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AnnotationConfigApplicationContext context;
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void sampledOutSuccessesAreOnlyMetered() {
+        WebTestClient client = start(0.0);
+
+        client.get().uri("/ok").exchange().expectStatus().isOk().expectBody(String.class).isEqualTo("{\"ok\":true}");
+
+        assertThat(records).isEmpty();
+        assertThat(meterRegistry.get("trace.body.skipped").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("trace.exchange").tag("phase", "complete").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void errorsAreLoggedWithTheirBodyEvenWhenSampledOut() {
+        WebTestClient client = start(0.0);
+
+        client.get().uri("/fail").exchange().expectStatus().isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+
+        assertThat(records).hasSize(1);
+        assertThat(records.get(0).isError()).isTrue();
+        assertThat(new String(records.get(0).getResponseBody().content(), StandardCharsets.UTF_8)).isEqualTo("{\"ok\":false}");
+    }
+
+    @Test
+    void sampledSuccessesAreLoggedWithTheirBody() {
+        WebTestClient client = start(1.0);
+
+        client.get().uri("/ok").exchange().expectStatus().isOk().expectBody(String.class).isEqualTo("{\"ok\":true}");
+
+        assertThat(records).hasSize(1);
+        assertThat(records.get(0).isError()).isFalse();
+        assertThat(new String(records.get(0).getResponseBody().content(), StandardCharsets.UTF_8)).isEqualTo("{\"ok\":true}");
+    }
+
+    private WebTestClient start(double sampleRatio) {
+        context = new AnnotationConfigApplicationContext();
+        TestPropertyValues.of("trace.async.enable=false", "trace.metrics.enable=true", "trace.sampling.enable=true",
+                "trace.sampling.ratio=" + sampleRatio).applyTo(context);
+        context.getBeanFactory().registerSingleton("meterRegistry", meterRegistry);
+        context.getBeanFactory().registerSingleton("traceRecordWriter", new TraceRecordWriter() {
+            @Override
+            public void write(TraceRecord record) {
+                records.add(record);
+            }
+        });
+        context.register(TraceAutoConfiguration.class, RequestIdContext.class, TraceLoggingScheduler.class, InboundLoggingFilter.class);
+        context.refresh();
+
+        return WebTestClient.bindToRouterFunction(RouterFunctions
+                        .route(GET("/ok"), request -> ServerResponse.ok().header("Content-Type", "application/json").bodyValue("{\"ok\":true}"))
+                        .andRoute(GET("/fail"), request -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .header("Content-Type", "application/json").bodyValue("{\"ok\":false}")))
+                .webFilter(context.getBean(InboundLoggingFilter.class))
+                .build();
+    }
+}
@@ -0,0 +1,29 @@
+package zxf.trace.servlet;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import zxf.trace.capture.CapturedBody;
+
+/**
+ * {@link ContentCachingRequestWrapper} which stops caching at the capture limit but keeps
+ * passing the full stream to the application, remembering that the cached copy is partial.
+ */
+public class BoundedContentCachingRequestWrapper extends ContentCachingRequestWrapper {
+    private boolean overflowed;
+
+    public BoundedContentCachingRequestWrapper(HttpServletRequest request, int maxBodyBytes) {
+        super(request, maxBodyBytes);
+    }
+
+    @Override
+    protected void handleContentOverflow(int contentCacheLimit) {
+        overflowed = true;
+    }
+
+    public CapturedBody getCapturedBody() {
+        byte[] content = getContentAsByteArray();
+        long contentLength = getContentLengthLong();
+        boolean truncated = overflowed || (contentLength > content.length && content.length > 0);
+        return new CapturedBody(content, truncated ? contentLength : content.length, truncated);
+    }
+}
@@ -0,0 +1,297 @@
+package zxf.trace.servlet;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import zxf.trace.capture.CapturePolicy;
+import zxf.trace.capture.CapturedBody;
+import zxf.trace.mdc.MDCHelper;
+import zxf.trace.metrics.TraceMeter;
+import zxf.trace.metrics.TraceMetrics;
+import zxf.trace.record.TraceHeaders;
+import zxf.trace.record.TraceRecord;
+import zxf.trace.record.TraceRecordDispatcher;
+import zxf.trace.route.RoutePolicy;
+import zxf.trace.route.RoutePolicyResolver;
+import zxf.trace.sampling.SamplingDecision;
+import zxf.trace.sampling.TraceGroup;
+import zxf.trace.sampling.TraceGroupBuffer;
+import zxf.trace.sampling.TraceSampler;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+public class InboundLoggingFilter extends OncePerRequestFilter {
+    // HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, spring-webmvc is not a dependency of this module
+    private static final String BEST_MATCHING_PATTERN_ATTRIBUTE = "org.springframework.web.servlet.HandlerMapping.bestMatchingPattern";
+    private static final String TRACE_GROUP_ATTRIBUTE = InboundLoggingFilter.class.getName() + ".traceGroup";
+
+    @Autowired
+    private MDCHelper mdcHelper;
+    @Autowired
+    private CapturePolicy capturePolicy;
+    @Autowired
+    private TraceRecordDispatcher traceRecordDispatcher;
+    @Autowired
+    private TraceSampler traceSampler;
+    @Autowired
+    private TraceGroupBuffer traceGroupBuffer;
+    @Autowired
+    private TraceMetrics traceMetrics;
+    @Autowired
+    private RoutePolicyResolver routePolicyResolver;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            doFilterAsyncDispatch(request, response, filterChain);
+            return;
+        }
+
+        RoutePolicy routePolicy = routePolicyResolver.inbound(pathWithinApplication(request));
+        if (!routePolicy.isTraced()) {
+            doFilterUntraced(request, response, filterChain);
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        // Binary and streaming request bodies are not wrapped at all, only their length is logged
+        int requestCaptureLimit = capturePolicy.inboundLimit(routePolicy, request.getContentType(), request.getContentLengthLong());
+        HttpServletRequest requestWrapper = requestCaptureLimit > 0 ? new BoundedContentCachingRequestWrapper(request, requestCaptureLimit) : request;
+        SamplingDecision samplingDecision = traceSampler.decide(() -> routeOf(request), routePolicy);
+        // Successful exchanges which are not sampled skip response body capture entirely, unless tail
+        // sampling may still keep them because of a failing downstream hop
+        TeeResponseWrapper responseWrapper = new TeeResponseWrapper(response,
+                () -> isError(response.getStatus()) || samplingDecision.isSampled() || traceGroupBuffer.isEnabled()
+                        ? capturePolicy.inboundLimit(routePolicy, response.getContentType(), contentLength(response)) : 0);
+
+        TraceGroup traceGroup = null;
+        try {
+            mdcHelper.inject(request::getHeader);
+            traceGroup = traceGroupBuffer.open();
+            if (traceGroup != null) {
+                request.setAttribute(TRACE_GROUP_ATTRIBUTE, traceGroup);
+            }
+            filterChain.doFilter(requestWrapper, responseWrapper);
+        } finally {
+            if (requestWrapper.isAsyncStarted()) {
+                // Callable, DeferredResult and emitters go on after this thread is released, the
+                // exchange is logged by the listener once the async request really completes
+                requestWrapper.getAsyncContext().addListener(
+                        new CompletionListener(requestWrapper, responseWrapper, routePolicy, samplingDecision, traceGroup, startNanos, MDC.getCopyOfContextMap()));
+            } else {
+                complete(requestWrapper, responseWrapper, routePolicy, samplingDecision, traceGroup, startNanos);
+            }
+            traceGroupBuffer.unbind();
+            mdcHelper.clean();
+        }
+    }
+
+    /**
+     * Async dispatches are filtered too, only to restore the request id and trace group for the
+     * handler's result processing; the exchange itself is logged by its {@link CompletionListener}.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    /**
+     * Ignored routes only get their request id, nothing is wrapped, metered or logged.
+     */
+    private void doFilterUntraced(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        try {
+            mdcHelper.inject(request::getHeader);
+            filterChain.doFilter(request, response);
+        } finally {
+            mdcHelper.clean();
+        }
+    }
+
+    private void doFilterAsyncDispatch(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        try {
+            mdcHelper.inject(request::getHeader);
+            traceGroupBuffer.bind((TraceGroup) request.getAttribute(TRACE_GROUP_ATTRIBUTE));
+            filterChain.doFilter(request, response);
+        } finally {
+            traceGroupBuffer.unbind();
+            mdcHelper.clean();
+        }
+    }
+
+    private void complete(HttpServletRequest request, TeeResponseWrapper response, RoutePolicy routePolicy, SamplingDecision samplingDecision,
+                          TraceGroup traceGroup, long startNanos) {
+        List<TraceRecord> outboundRecords = traceGroupBuffer.close(traceGroup);
+        long durationNanos = System.nanoTime() - startNanos;
+        long firstWriteNanos = response.getFirstWriteNanos();
+        long responseStartNanos = firstWriteNanos == 0 ? durationNanos : firstWriteNanos - startNanos;
+        logRequestAndResponse(request, response, routePolicy, samplingDecision, traceGroup, outboundRecords, responseStartNanos, durationNanos);
+    }
+
+    private void logRequestAndResponse(HttpServletRequest request, TeeResponseWrapper response, RoutePolicy routePolicy, SamplingDecision samplingDecision,
+                                       TraceGroup traceGroup, List<TraceRecord> outboundRecords, long responseStartNanos, long durationNanos) {
+        try {
+            boolean isError = isError(response.getStatus());
+            // Latency is recorded for every exchange, sampled or not
+            TraceMeter meter = traceMetrics.meter(TraceRecord.Direction.INBOUND, routeOf(request));
+            meter.responseStarted(responseStartNanos);
+            meter.completed(durationNanos);
+
+            boolean keep;
+            if (traceGroup != null) {
+                // Tail-based: the whole request tree is kept when any hop failed or was slow
+                keep = isError || traceGroup.isFailed() || traceGroupBuffer.isSlow(durationNanos)
+                        || (traceSampler.isEnabled() && samplingDecision.isSampled());
+                if (keep) {
+                    outboundRecords.forEach(traceRecordDispatcher::dispatch);
+                } else {
+                    outboundRecords.forEach(outboundRecord -> outboundRecord.getMeter().skipped());
+                }
+            } else {
+                keep = isError || samplingDecision.isSampled();
+            }
+
+            if (!log.isEnabledForLevel(routePolicy.level(isError)) || !keep) {
+                meter.skipped();
+                return;
+            }
+
+            // Only snapshot here, masking and formatting run on the trace dispatcher thread
+            long captureStartNanos = meter.start();
+            TraceRecord record = TraceRecord.builder()
+                    .logger(log)
+                    .direction(TraceRecord.Direction.INBOUND)
+                    .error(isError)
+                    .url(request.getRequestURI() + "?" + StringUtils.defaultString(request.getQueryString()))
+                    .method(request.getMethod())
+                    .requestHeaders(TraceHeaders.of(Collections.list(request.getHeaderNames()), headerName -> Collections.list(request.getHeaders(headerName))))
+                    .requestContentType(request.getContentType())
+                    .requestCharset(toCharset(request.getCharacterEncoding()))
+                    .requestBody(request instanceof BoundedContentCachingRequestWrapper requestWrapper
+                            ? requestWrapper.getCapturedBody() : CapturedBody.notCaptured(request.getContentLengthLong()))
+                    .statusCode(response.getStatus())
+                    .responseHeaders(TraceHeaders.of(response.getHeaderNames(), headerName -> List.copyOf(response.getHeaders(headerName))))
+                    .responseContentType(response.getContentType())
+                    .responseCharset(toCharset(response.getCharacterEncoding()))
+                    .responseBody(response.getCapturedBody())
+                    .durationNanos(durationNanos)
+                    .mdcContext(MDC.getCopyOfContextMap())
+                    .createdNanos(System.nanoTime())
+                    .meter(meter)
+                    .routePolicy(routePolicy)
+                    .build();
+            meter.captured(captureStartNanos);
+            meter.body(record.getRequestBody());
+            meter.body(record.getResponseBody());
+            traceRecordDispatcher.dispatch(record);
+        } catch (Exception ex) {
+            log.error("Exception when log request and response", ex);
+        }
+    }
+
+    /**
+     * Client and server errors, other successful and redirect statuses are logged like a 200.
+     */
+    private boolean isError(int status) {
+        return status >= HttpStatus.BAD_REQUEST.value();
+    }
+
+    private String routeOf(HttpServletRequest request) {
+        Object bestMatchingPattern = request.getAttribute(BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return bestMatchingPattern != null ? bestMatchingPattern.toString() : TraceMetrics.UNMATCHED_ROUTE;
+    }
+
+    private String pathWithinApplication(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private long contentLength(HttpServletResponse response) {
+        return NumberUtils.toLong(response.getHeader(HttpHeaders.CONTENT_LENGTH), CapturedBody.UNKNOWN_LENGTH);
+    }
+
+    private Charset toCharset(String encoding) {
+        return StringUtils.isEmpty(encoding) ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+    }
+
+    /**
+     * Logs an async exchange exactly once, on the container thread which completes it, with the MDC
+     * of the request thread which started it. Nothing waits for the completion.
+     */
+    private class CompletionListener implements AsyncListener {
+        private final HttpServletRequest request;
+        private final TeeResponseWrapper response;
+        private final RoutePolicy routePolicy;
+        private final SamplingDecision samplingDecision;
+        private final TraceGroup traceGroup;
+        private final long startNanos;
+        private final Map<String, String> mdcContext;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private CompletionListener(HttpServletRequest request, TeeResponseWrapper response, RoutePolicy routePolicy, SamplingDecision samplingDecision,
+                                   TraceGroup traceGroup, long startNanos, Map<String, String> mdcContext) {
+            this.request = request;
+            this.response = response;
+            this.routePolicy = routePolicy;
+            this.samplingDecision = samplingDecision;
+            this.traceGroup = traceGroup;
+            this.startNanos = startNanos;
+            this.mdcContext = mdcContext;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            setMdc(mdcContext);
+            try {
+                complete(request, response, routePolicy, samplingDecision, traceGroup, startNanos);
+            } finally {
+                setMdc(previous);
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // Spring MVC answers the timeout, the container then completes the request
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // The container completes the request after the error, logged in onComplete
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Listeners are dropped when async processing is started again from an async dispatch
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    private static void setMdc(Map<String, String> context) {
+        if (context == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context);
+        }
+    }
+}
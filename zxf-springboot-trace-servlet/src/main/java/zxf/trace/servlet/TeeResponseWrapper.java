@@ -0,0 +1,228 @@
+package zxf.trace.servlet;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import zxf.trace.capture.CaptureBuffer;
+import zxf.trace.capture.CapturedBody;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.function.IntSupplier;
+
+/**
+ * Response wrapper which writes the body straight through to the servlet output stream and keeps a
+ * bounded copy for logging. Unlike {@link org.springframework.web.util.ContentCachingResponseWrapper}
+ * nothing is held back: the container commits and streams the response as the application writes it,
+ * and the status code stays readable after commit for picking the log level.
+ * <p>
+ * How much of the body is captured is decided on the first write, once status code and content type
+ * are set, so exchanges that will not be logged and binary or streaming bodies skip capture entirely.
+ * <p>
+ * The writer encodes every write straight onto the same stream and holds no characters of its own,
+ * so {@link #resetBuffer()} and {@link #reset()} leave nothing behind that could leak into the body
+ * written after them, such as an error page.
+ */
+public class TeeResponseWrapper extends HttpServletResponseWrapper {
+    private final IntSupplier captureLimit;
+    private CaptureBuffer captureBuffer;
+    private ServletOutputStream outputStream;
+    private TeeWriter teeWriter;
+    private PrintWriter writer;
+    private long firstWriteNanos;
+
+    public TeeResponseWrapper(HttpServletResponse response, int maxBodyBytes) {
+        this(response, () -> maxBodyBytes);
+    }
+
+    /**
+     * @param captureLimit bytes of the body to capture, {@code 0} to only count them
+     */
+    public TeeResponseWrapper(HttpServletResponse response, IntSupplier captureLimit) {
+        super(response);
+        this.captureLimit = captureLimit;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new TeeServletOutputStream(getResponse().getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            teeWriter = new TeeWriter(Charset.forName(getCharacterEncoding()));
+            writer = new PrintWriter(teeWriter);
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        markFirstWrite();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        captureBuffer = null;
+        if (teeWriter != null) {
+            teeWriter.reset();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        captureBuffer = null;
+        // The encoding may change after a reset, the next getWriter() picks it up
+        teeWriter = null;
+        writer = null;
+    }
+
+    /**
+     * @return the captured body, empty but with its length when capture was skipped for this response
+     */
+    public CapturedBody getCapturedBody() {
+        return captureBuffer().toCapturedBody();
+    }
+
+    /**
+     * @return {@link System#nanoTime()} of the first body write or flush handed to the container, about
+     * when it committed the response, or {@code 0} when nothing was written
+     */
+    public long getFirstWriteNanos() {
+        return firstWriteNanos;
+    }
+
+    private void markFirstWrite() {
+        if (firstWriteNanos == 0) {
+            firstWriteNanos = System.nanoTime();
+        }
+    }
+
+    private CaptureBuffer captureBuffer() {
+        if (captureBuffer == null) {
+            captureBuffer = new CaptureBuffer(captureLimit.getAsInt());
+        }
+        return captureBuffer;
+    }
+
+    /**
+     * Encodes each write onto the tee stream right away. Only the high half of a surrogate pair split
+     * across two writes is held back, until its low half arrives.
+     */
+    private class TeeWriter extends Writer {
+        private final CharsetEncoder encoder;
+        private final ByteBuffer bytes = ByteBuffer.allocate(1024);
+        private char highSurrogate;
+
+        TeeWriter(Charset charset) {
+            this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            CharBuffer chars;
+            if (highSurrogate != 0) {
+                chars = CharBuffer.allocate(len + 1).put(highSurrogate).put(cbuf, off, len).flip();
+                highSurrogate = 0;
+            } else {
+                chars = CharBuffer.wrap(cbuf, off, len);
+            }
+            while (encoder.encode(chars, bytes, false).isOverflow()) {
+                drain();
+            }
+            drain();
+            if (chars.hasRemaining()) {
+                highSurrogate = chars.get();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            getOutputStream().flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (highSurrogate != 0) {
+                // A dangling high surrogate is malformed, the encoder writes its replacement
+                CharBuffer chars = CharBuffer.wrap(new char[]{highSurrogate});
+                highSurrogate = 0;
+                encoder.encode(chars, bytes, true);
+                drain();
+            }
+            getOutputStream().close();
+        }
+
+        void reset() {
+            highSurrogate = 0;
+            encoder.reset();
+        }
+
+        private void drain() throws IOException {
+            bytes.flip();
+            if (bytes.hasRemaining()) {
+                getOutputStream().write(bytes.array(), bytes.arrayOffset(), bytes.limit());
+            }
+            bytes.clear();
+        }
+    }
+
+    private class TeeServletOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+
+        TeeServletOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            markFirstWrite();
+            delegate.write(b);
+            captureBuffer().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            markFirstWrite();
+            delegate.write(b, off, len);
+            captureBuffer().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package zxf.trace.servlet;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import zxf.trace.TraceAutoConfiguration;
+
+/**
+ * Servlet adapter of the trace core. It lives in its own module, so the core has no servlet
+ * dependency, and is only evaluated in servlet web applications.
+ */
+@AutoConfiguration(after = TraceAutoConfiguration.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class TraceServletAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public InboundLoggingFilter inboundLoggingFilter() {
+        return new InboundLoggingFilter();
+    }
+}
@@ -0,0 +1,107 @@
+package zxf.trace.servlet;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import zxf.trace.capture.CapturedBody;
+
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TeeResponseWrapperTest {
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    void streamWritesThroughAndIsCaptured() throws Exception {
+        TeeResponseWrapper wrapper = new TeeResponseWrapper(response, 1024);
+
+        wrapper.getOutputStream().write("{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(response.getContentAsString()).isEqualTo("{\"id\":1}");
+        assertThat(captured(wrapper)).isEqualTo("{\"id\":1}");
+        assertThat(wrapper.getFirstWriteNanos()).isPositive();
+    }
+
+    @Test
+    void writerWritesThroughWithoutFlushAndIsCaptured() throws Exception {
+        TeeResponseWrapper wrapper = new TeeResponseWrapper(response, 1024);
+        wrapper.setCharacterEncoding("UTF-8");
+
+        wrapper.getWriter().print("héllo €");
+
+        assertThat(response.getContentAsString(StandardCharsets.UTF_8)).isEqualTo("héllo €");
+        assertThat(captured(wrapper)).isEqualTo("héllo €");
+    }
+
+    @Test
+    void writerKeepsSurrogatePairsSplitAcrossWrites() throws Exception {
+        TeeResponseWrapper wrapper = new TeeResponseWrapper(response, 1024);
+        wrapper.setCharacterEncoding("UTF-8");
+        String emoji = "😀";
+
+        PrintWriter writer = wrapper.getWriter();
+        writer.write(emoji.charAt(0));
+        writer.write(emoji.charAt(1));
+
+        assertThat(response.getContentAsString(StandardCharsets.UTF_8)).isEqualTo(emoji);
+        assertThat(captured(wrapper)).isEqualTo(emoji);
+    }
+
+    @Test
+    void resetBufferLeavesNothingOfTheDiscardedBody() throws Exception {
+        TeeResponseWrapper wrapper = new TeeResponseWrapper(response, 1024);
+        wrapper.setCharacterEncoding("UTF-8");
+        PrintWriter writer = wrapper.getWriter();
+        writer.print("{\"partial\":");
+
+        wrapper.resetBuffer();
+        writer.print("{\"code\":\"SERVER_ERROR\"}");
+        writer.flush();
+
+        assertThat(response.getContentAsString(StandardCharsets.UTF_8)).isEqualTo("{\"code\":\"SERVER_ERROR\"}");
+        assertThat(captured(wrapper)).isEqualTo("{\"code\":\"SERVER_ERROR\"}");
+    }
+
+    @Test
+    void resetHandsOutAWriterInTheNewEncoding() throws Exception {
+        TeeResponseWrapper wrapper = new TeeResponseWrapper(response, 1024);
+        wrapper.setCharacterEncoding("UTF-8");
+        wrapper.getWriter().print("partial");
+
+        wrapper.reset();
+        wrapper.setCharacterEncoding("ISO-8859-1");
+        wrapper.getWriter().print("é");
+
+        assertThat(response.getContentAsByteArray()).containsExactly(0xE9);
+        assertThat(wrapper.getCapturedBody().content()).containsExactly(0xE9);
+    }
+
+    @Test
+    void capturesUpToTheLimitAndCountsTheRest() throws Exception {
+        TeeResponseWrapper wrapper = new TeeResponseWrapper(response, 4);
+
+        wrapper.getOutputStream().write("0123456789".getBytes(StandardCharsets.UTF_8));
+
+        CapturedBody capturedBody = wrapper.getCapturedBody();
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+        assertThat(new String(capturedBody.content(), StandardCharsets.UTF_8)).isEqualTo("0123");
+        assertThat(capturedBody.totalLength()).isEqualTo(10);
+        assertThat(capturedBody.truncated()).isTrue();
+    }
+
+    @Test
+    void zeroLimitOnlyCountsTheBody() throws Exception {
+        TeeResponseWrapper wrapper = new TeeResponseWrapper(response, () -> 0);
+
+        wrapper.getOutputStream().write("0123456789".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+        assertThat(wrapper.getCapturedBody().content()).isEmpty();
+        assertThat(wrapper.getCapturedBody().totalLength()).isEqualTo(10);
+    }
+
+    private static String captured(TeeResponseWrapper wrapper) {
+        return new String(wrapper.getCapturedBody().content(), StandardCharsets.UTF_8);
+    }
+}
@@ -2,13 +2,12 @@ package zxf.trace;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.ComponentScan;
 
 /**
  * 应用程序入口点
  */
-@SpringBootApplication
-@ComponentScan(basePackages = "zxf.trace")
+// Tracing comes from the trace auto-configurations, only the application's own packages are scanned
+@SpringBootApplication(scanBasePackages = {"zxf.trace.app", "zxf.trace.support"})
 public class TraceApplication {
 
     public static void main(String[] args) {
@@ -3,6 +3,7 @@ package zxf.trace.app.control;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -18,6 +19,8 @@ import java.util.Map;
 public class TestController {
 
     private final WebClient webClient;
+    @Value("${app.outbound-url}")
+    private String outboundUrl;
 
     @GetMapping("/ok-test")
     public Mono<ResponseEntity> okTest(@RequestParam String task) {
@@ -52,7 +55,7 @@ public class TestController {
         log.info("Processing outbound test request");
 
         Object response = webClient.post()
-                .uri("https://jsonplaceholder.typicode.com/posts")
+                .uri(outboundUrl)
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(Object.class);
@@ -3,16 +3,13 @@ package zxf.trace.support.trace;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
-import zxf.trace.support.trace.outbound.OutboundExchangeFilter;
 
+/**
+ * The builder Spring Boot hands out is already traced by the reactive trace auto-configuration.
+ */
 @Configuration
 public class TraceConfiguration {
 
-    @Bean
-    public WebClient.Builder webClientBuilder(OutboundExchangeFilter outboundExchangeFilter) {
-        return WebClient.builder().filter(outboundExchangeFilter);
-    }
-
     /**
      * 配置默认WebClient实例
      *
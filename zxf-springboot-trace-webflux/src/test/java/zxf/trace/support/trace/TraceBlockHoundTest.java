@@ -0,0 +1,113 @@
+package zxf.trace.support.trace;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+import zxf.trace.record.TraceRecordDispatcher;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Runs the inbound filter and the WebClient filter with BlockHound installed, so any blocking call
+ * they make on an event loop thread fails the exchange.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class TraceBlockHoundTest {
+    private static DisposableServer downstream;
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private WebClient webClient;
+    @Autowired
+    private TraceRecordDispatcher traceRecordDispatcher;
+    @LocalServerPort
+    private int port;
+
+    @BeforeAll
+    static void installBlockHound() {
+        // The console appender of the sample application writes on the calling thread, it is not part of the trace pipeline
+        BlockHound.install(builder -> builder.allowBlockingCallsInside("ch.qos.logback.core.OutputStreamAppender", "writeBytes"));
+        downstream = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.post("/posts", (request, response) -> response
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .send(request.receive().retain())))
+                .bindNow();
+    }
+
+    @AfterAll
+    static void stopDownstream() {
+        downstream.disposeNow();
+    }
+
+    @DynamicPropertySource
+    static void outboundUrl(DynamicPropertyRegistry registry) {
+        registry.add("app.outbound-url", () -> "http://localhost:" + downstream.port() + "/posts");
+    }
+
+    @Test
+    void blockHoundIsInstalled() {
+        StepVerifier.create(Mono.fromCallable(() -> {
+                    Thread.sleep(1);
+                    return "slept";
+                }).subscribeOn(Schedulers.parallel()))
+                .expectError(BlockingOperationError.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void inboundAndOutboundExchangesAreTracedWithoutBlocking() {
+        long writtenCount = traceRecordDispatcher.getWrittenCount();
+
+        webTestClient.post().uri("/api/outbound-test")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("cardNumber", "4111111111111111", "amount", 10))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.amount").isEqualTo(10);
+
+        // The inbound exchange and the outbound call it made
+        await().atMost(Duration.ofSeconds(5)).until(() -> traceRecordDispatcher.getWrittenCount() >= writtenCount + 2);
+    }
+
+    @Test
+    void webClientExchangesAreTracedWithoutBlocking() {
+        long writtenCount = traceRecordDispatcher.getWrittenCount();
+
+        StepVerifier.create(webClient.get().uri("http://localhost:" + port + "/api/ok-test?task=blockhound")
+                        .retrieve()
+                        .bodyToMono(String.class))
+                .assertNext(body -> assertThat(body).contains("blockhound"))
+                .verifyComplete();
+        StepVerifier.create(webClient.get().uri("http://localhost:" + port + "/api/error-test")
+                        .retrieve()
+                        .bodyToMono(String.class))
+                .expectError(WebClientResponseException.BadRequest.class)
+                .verify(Duration.ofSeconds(5));
+
+        // Both calls, each seen outbound by the client and inbound by the server
+        await().atMost(Duration.ofSeconds(5)).until(() -> traceRecordDispatcher.getWrittenCount() >= writtenCount + 4);
+    }
+}
@@ -3,7 +3,8 @@ package zxf.trace;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
-@SpringBootApplication
+// Tracing comes from the trace auto-configurations, only the application's own packages are scanned
+@SpringBootApplication(scanBasePackages = {"zxf.trace.app", "zxf.trace.support"})
 public class TraceApplication {
 
     public static void main(String[] args) {
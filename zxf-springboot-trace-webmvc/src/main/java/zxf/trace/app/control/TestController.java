@@ -2,12 +2,16 @@ package zxf.trace.app.control;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @RestController
@@ -15,6 +19,8 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class TestController {
     private final RestTemplate restTemplate;
+    @Value("${app.outbound-url}")
+    private String outboundUrl;
 
     @GetMapping("/ok-test")
     public ResponseEntity<Map<String, Object>> okTest(@RequestParam String task) {
@@ -52,8 +58,37 @@ public class TestController {
     public ResponseEntity<Object> outboundTest(@RequestBody Map<String, Object> request) {
         log.info("Processing outbound test request");
 
-        Object response = restTemplate.postForObject("https://jsonplaceholder.typicode.com/posts", request, Object.class);
+        Object response = restTemplate.postForObject(outboundUrl, request, Object.class);
 
         return ResponseEntity.ok(response);
     }
+
+    @GetMapping("/async-test")
+    public Callable<Map<String, Object>> asyncTest(@RequestParam(defaultValue = "200") long delay) {
+        log.info("Processing async test request");
+
+        return () -> {
+            Thread.sleep(delay);
+            return Map.of("delay", delay, "token", "this is a sensitive data");
+        };
+    }
+
+    @GetMapping("/sse-test")
+    public SseEmitter sseTest(@RequestParam(defaultValue = "3") int events) {
+        log.info("Processing sse test request");
+
+        SseEmitter emitter = new SseEmitter();
+        CompletableFuture.runAsync(() -> {
+            try {
+                for (int i = 0; i < events; i++) {
+                    emitter.send(Map.of("event", i));
+                    Thread.sleep(100);
+                }
+                emitter.complete();
+            } catch (Exception ex) {
+                emitter.completeWithError(ex);
+            }
+        });
+        return emitter;
+    }
 }
@@ -0,0 +1,27 @@
+package zxf.trace.support.trace;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+
+/**
+ * Connection pool and timeouts of the pooled Apache HttpClient behind the primary RestTemplate.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "trace.http-client")
+public class HttpClientConfiguration {
+    private Integer maxTotal = 200;
+    private Integer maxPerRoute = 50;
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(10);
+    /**
+     * How long a request waits for a pooled connection before failing.
+     */
+    private Duration leaseTimeout = Duration.ofSeconds(1);
+    private Duration idleEvictAfter = Duration.ofSeconds(30);
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+}
@@ -0,0 +1,97 @@
+package zxf.trace.support.trace;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pooling connection manager which also records how long requests wait to lease a connection,
+ * exposed over JMX together with the pool size.
+ */
+@ManagedResource(objectName = "zxf.trace:name=HttpClientConnectionPool", description = "Outbound HTTP client connection pool")
+public class MeteredConnectionManager extends PoolingHttpClientConnectionManager {
+    private final LongAdder leaseCount = new LongAdder();
+    private final LongAdder leaseTimeoutCount = new LongAdder();
+    private final LongAdder leaseWaitNanos = new LongAdder();
+    private final LongAccumulator maxLeaseWaitNanos = new LongAccumulator(Math::max, 0);
+
+    @Override
+    public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+        LeaseRequest leaseRequest = super.lease(id, route, requestTimeout, state);
+        long startNanos = System.nanoTime();
+        return new LeaseRequest() {
+            @Override
+            public ConnectionEndpoint get(Timeout timeout) throws InterruptedException, ExecutionException, TimeoutException {
+                try {
+                    ConnectionEndpoint endpoint = leaseRequest.get(timeout);
+                    recordLease(System.nanoTime() - startNanos);
+                    return endpoint;
+                } catch (TimeoutException ex) {
+                    leaseTimeoutCount.increment();
+                    throw ex;
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return leaseRequest.cancel();
+            }
+        };
+    }
+
+    private void recordLease(long waitNanos) {
+        leaseCount.increment();
+        leaseWaitNanos.add(waitNanos);
+        maxLeaseWaitNanos.accumulate(waitNanos);
+    }
+
+    @ManagedAttribute(description = "Connections currently leased to requests")
+    public int getLeased() {
+        return getTotalStats().getLeased();
+    }
+
+    @ManagedAttribute(description = "Requests waiting for a connection")
+    public int getPending() {
+        return getTotalStats().getPending();
+    }
+
+    @ManagedAttribute(description = "Idle connections kept alive in the pool")
+    public int getAvailable() {
+        return getTotalStats().getAvailable();
+    }
+
+    @ManagedAttribute(description = "Maximum number of pooled connections")
+    public int getMax() {
+        return getTotalStats().getMax();
+    }
+
+    @ManagedAttribute(description = "Connections leased so far")
+    public long getLeaseCount() {
+        return leaseCount.sum();
+    }
+
+    @ManagedAttribute(description = "Requests which gave up waiting for a connection")
+    public long getLeaseTimeoutCount() {
+        return leaseTimeoutCount.sum();
+    }
+
+    @ManagedAttribute(description = "Average time to lease a connection, in milliseconds")
+    public double getAverageLeaseWaitMillis() {
+        long count = leaseCount.sum();
+        return count == 0 ? 0 : leaseWaitNanos.sum() / 1_000_000.0 / count;
+    }
+
+    @ManagedAttribute(description = "Longest time to lease a connection seen so far, in milliseconds")
+    public double getMaxLeaseWaitMillis() {
+        return maxLeaseWaitNanos.get() / 1_000_000.0;
+    }
+}
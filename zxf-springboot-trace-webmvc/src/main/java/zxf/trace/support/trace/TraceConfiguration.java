@@ -1,34 +1,72 @@
 package zxf.trace.support.trace;
 
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
-import org.springframework.http.client.BufferingClientHttpRequestFactory;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 import zxf.trace.OutboundLoggingInterceptor;
+import zxf.trace.http.HttpClientTracing;
 
 @Configuration
 public class TraceConfiguration {
     @Autowired
     private OutboundLoggingInterceptor outboundLoggingInterceptor;
+    @Autowired
+    private HttpClientConfiguration httpClientConfiguration;
+
+    @Bean
+    public MeteredConnectionManager httpClientConnectionManager() {
+        MeteredConnectionManager connectionManager = new MeteredConnectionManager();
+        connectionManager.setMaxTotal(httpClientConfiguration.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(httpClientConfiguration.getMaxPerRoute());
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(httpClientConfiguration.getConnectTimeout()))
+                .setSocketTimeout(Timeout.of(httpClientConfiguration.getReadTimeout()))
+                .setValidateAfterInactivity(TimeValue.of(httpClientConfiguration.getValidateAfterInactivity()))
+                .build());
+        return connectionManager;
+    }
+
+    @Bean
+    public HttpClient httpClient(MeteredConnectionManager httpClientConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(httpClientConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(httpClientConfiguration.getLeaseTimeout()))
+                        .setResponseTimeout(Timeout.of(httpClientConfiguration.getReadTimeout()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(httpClientConfiguration.getIdleEvictAfter()))
+                .build();
+    }
 
+    /**
+     * Pooled keep-alive client. The logging interceptor does its own bounded capture of the
+     * response, so no BufferingClientHttpRequestFactory is layered on top.
+     */
     @Bean
     @Primary
-    public RestTemplate restTemplate() {
-        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
-        RestTemplate restTemplate = new RestTemplate(requestFactory);
+    public RestTemplate restTemplate(HttpClient httpClient) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
         restTemplate.getInterceptors().add(outboundLoggingInterceptor);
         return restTemplate;
     }
 
-    @Bean("restTemplateWithBuffer")
-    public RestTemplate restTemplateWithBuffer() {
-        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
-        RestTemplate restTemplate = new RestTemplate(new BufferingClientHttpRequestFactory(requestFactory));
-        restTemplate.getInterceptors().add(outboundLoggingInterceptor);
-        return restTemplate;
+    /**
+     * JDK client for services which prefer java.net.http, traced through body publisher/subscriber tees.
+     */
+    @Bean
+    public java.net.http.HttpClient jdkHttpClient(HttpClientTracing httpClientTracing) {
+        return httpClientTracing.wrap(java.net.http.HttpClient.newBuilder()
+                .connectTimeout(httpClientConfiguration.getConnectTimeout())
+                .build());
     }
 }
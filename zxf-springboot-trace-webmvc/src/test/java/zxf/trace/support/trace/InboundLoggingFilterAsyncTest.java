@@ -0,0 +1,201 @@
+package zxf.trace.support.trace;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import zxf.trace.record.TraceRecord;
+import zxf.trace.record.TraceRecordWriter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Each async flavour of Spring MVC must produce exactly one inbound record, logged once the async
+ * request really completes and carrying the request id of the thread which started it.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import({InboundLoggingFilterAsyncTest.AsyncController.class, InboundLoggingFilterAsyncTest.RecordingConfiguration.class})
+class InboundLoggingFilterAsyncTest {
+    // Unlike the Apache client behind TestRestTemplate, never retries a 503
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private RecordingTraceRecordWriter traceRecordWriter;
+
+    @Test
+    void callableIsLoggedOnce() throws Exception {
+        HttpResponse<String> response = get("/async-trace/callable");
+
+        assertThat(response.body()).isEqualTo("callable");
+        assertLoggedOnce("/async-trace/callable", 200, "callable");
+    }
+
+    @Test
+    void deferredResultIsLoggedOnce() throws Exception {
+        HttpResponse<String> response = get("/async-trace/deferred");
+
+        assertThat(response.body()).isEqualTo("deferred");
+        assertLoggedOnce("/async-trace/deferred", 200, "deferred");
+    }
+
+    @Test
+    void emitterIsLoggedOnce() throws Exception {
+        HttpResponse<String> response = get("/async-trace/emitter");
+
+        assertThat(response.body()).contains("data:0", "data:1", "data:2");
+        assertLoggedOnce("/async-trace/emitter", 200, null);
+    }
+
+    @Test
+    void asyncTimeoutIsLoggedOnceAsError() throws Exception {
+        HttpResponse<String> response = get("/async-trace/timeout");
+
+        assertThat(response.statusCode()).isEqualTo(503);
+        assertLoggedOnce("/async-trace/timeout", 503, null);
+    }
+
+    @Test
+    void asyncStartedAgainFromTheAsyncDispatchIsLoggedOnce() throws Exception {
+        HttpResponse<String> response = get("/async-trace/redispatch");
+
+        assertThat(response.body()).isEqualTo("redispatched");
+        assertLoggedOnce("/async-trace/redispatch", 200, "redispatched");
+    }
+
+    @Test
+    void successfulStatusOtherThan200IsNotAnError() throws Exception {
+        HttpResponse<String> response = get("/async-trace/created");
+
+        assertThat(response.statusCode()).isEqualTo(201);
+        assertLoggedOnce("/async-trace/created", 201, "created");
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).header("X-Request-Id", requestIdOf(path)).build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void assertLoggedOnce(String path, int status, String responseBody) {
+        await().atMost(Duration.ofSeconds(5)).until(() -> traceRecordWriter.inboundRecordsOf(path).size() >= 1);
+        // A second record would come from a second completion of the same exchange, give it time to show up
+        await().during(Duration.ofMillis(300)).atMost(Duration.ofSeconds(2)).until(() -> traceRecordWriter.inboundRecordsOf(path).size() == 1);
+
+        TraceRecord record = traceRecordWriter.inboundRecordsOf(path).get(0);
+        assertThat(record.getStatusCode()).isEqualTo(status);
+        assertThat(record.isError()).isEqualTo(status >= 400);
+        assertThat(record.getMdcContext()).containsEntry("ReqId", requestIdOf(path));
+        if (responseBody != null) {
+            assertThat(new String(record.getResponseBody().content(), record.getResponseCharset())).isEqualTo(responseBody);
+        }
+    }
+
+    private static String requestIdOf(String path) {
+        return "req" + path.replace('/', '-');
+    }
+
+    @RestController
+    @RequestMapping("/async-trace")
+    static class AsyncController {
+
+        @GetMapping("/callable")
+        Callable<String> callable() {
+            return () -> "callable";
+        }
+
+        @GetMapping("/deferred")
+        DeferredResult<String> deferred() {
+            return deferredResult("deferred");
+        }
+
+        @GetMapping("/emitter")
+        SseEmitter emitter() {
+            SseEmitter emitter = new SseEmitter();
+            CompletableFuture.runAsync(() -> {
+                try {
+                    for (int i = 0; i < 3; i++) {
+                        emitter.send(i);
+                    }
+                    emitter.complete();
+                } catch (Exception ex) {
+                    emitter.completeWithError(ex);
+                }
+            }, CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+            return emitter;
+        }
+
+        @GetMapping("/timeout")
+        DeferredResult<String> timeout() {
+            return new DeferredResult<>(100L);
+        }
+
+        /**
+         * The Callable's result starts async processing again from the async dispatch, which drops the
+         * listeners registered on the first start.
+         */
+        @GetMapping("/redispatch")
+        Callable<DeferredResult<String>> redispatch() {
+            return () -> deferredResult("redispatched");
+        }
+
+        @GetMapping("/created")
+        @ResponseStatus(HttpStatus.CREATED)
+        String created() {
+            return "created";
+        }
+
+        private static DeferredResult<String> deferredResult(String value) {
+            DeferredResult<String> result = new DeferredResult<>();
+            CompletableFuture.runAsync(() -> result.setResult(value), CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+            return result;
+        }
+    }
+
+    @TestConfiguration
+    static class RecordingConfiguration {
+
+        @Bean
+        RecordingTraceRecordWriter traceRecordWriter() {
+            return new RecordingTraceRecordWriter();
+        }
+    }
+
+    static class RecordingTraceRecordWriter extends TraceRecordWriter {
+        private final List<TraceRecord> records = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void write(TraceRecord record) {
+            records.add(record);
+            super.write(record);
+        }
+
+        List<TraceRecord> inboundRecordsOf(String path) {
+            return records.stream()
+                    .filter(record -> record.getDirection() == TraceRecord.Direction.INBOUND && record.getUrl().startsWith(path + "?"))
+                    .toList();
+        }
+    }
+}
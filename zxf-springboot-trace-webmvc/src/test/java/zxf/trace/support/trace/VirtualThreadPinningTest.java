@@ -0,0 +1,120 @@
+package zxf.trace.support.trace;
+
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs traced inbound and outbound exchanges on virtual threads under JFR and fails on any
+ * {@code jdk.VirtualThreadPinned} event, which is how a monitor held across a blocking call in
+ * InboundLoggingFilter, OutboundLoggingInterceptor or the connection pool would show up.
+ */
+@ActiveProfiles("virtual-threads")
+// A small pool, so concurrent outbound calls have to wait for a lease
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "trace.http-client.max-per-route=8")
+class VirtualThreadPinningTest {
+    private static final int REQUESTS = 200;
+
+    private static HttpServer downstream;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @BeforeAll
+    static void startDownstream() throws IOException {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need JDK 21+");
+        downstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        downstream.createContext("/posts", exchange -> {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        downstream.setExecutor(Executors.newFixedThreadPool(8));
+        downstream.start();
+    }
+
+    @AfterAll
+    static void stopDownstream() {
+        if (downstream != null) {
+            downstream.stop(0);
+        }
+    }
+
+    @DynamicPropertySource
+    static void outboundUrl(DynamicPropertyRegistry registry) {
+        registry.add("app.outbound-url", () -> "http://127.0.0.1:" + downstream.getAddress().getPort() + "/posts");
+    }
+
+    @Test
+    void tracedExchangesDoNotPinCarrierThreads() throws Exception {
+        List<RecordedEvent> pinnedEvents = new CopyOnWriteArrayList<>();
+        AtomicInteger virtualThreadStarts = new AtomicInteger();
+        AtomicInteger flushes = new AtomicInteger();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.enable("jdk.VirtualThreadStart");
+            recording.onEvent("jdk.VirtualThreadPinned", pinnedEvents::add);
+            recording.onEvent("jdk.VirtualThreadStart", event -> virtualThreadStarts.incrementAndGet());
+            recording.onFlush(flushes::incrementAndGet);
+            recording.startAsync();
+
+            ExecutorService clients = Executors.newFixedThreadPool(32);
+            CompletableFuture<?>[] requests = IntStream.range(0, REQUESTS)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                        ResponseEntity<Map> outbound = testRestTemplate.postForEntity("/api/outbound-test", Map.of("task", i, "token", "secret"), Map.class);
+                        assertThat(outbound.getStatusCode().is2xxSuccessful()).isTrue();
+                        ResponseEntity<String> ok = testRestTemplate.getForEntity("/api/ok-test?task={task}", String.class, i);
+                        assertThat(ok.getStatusCode().is2xxSuccessful()).isTrue();
+                    }, clients))
+                    .toArray(CompletableFuture[]::new);
+            try {
+                // Carriers pinned by waiting leases can deadlock the server, so fail instead of hanging
+                CompletableFuture.allOf(requests).get(60, TimeUnit.SECONDS);
+            } finally {
+                clients.shutdown();
+            }
+
+            // Events are flushed about once a second, two more flushes have delivered all of them
+            int flushed = flushes.get();
+            await().atMost(Duration.ofSeconds(10)).until(() -> flushes.get() >= flushed + 2);
+        }
+
+        assertThat(virtualThreadStarts).as("requests served on virtual threads").hasPositiveValue();
+        assertThat(pinnedEvents).as("pinned carrier threads").isEmpty();
+    }
+}